@@ -0,0 +1,27 @@
+package com.paul.startclass.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Запуск JMH с GC профайлером (gc.alloc.rate, gc.alloc.rate.norm), остальные опции из командной строки,
+// например: -p rows=100000 -p chunkSize=1000,5000 -p threads=4,8,16 -p strategy=pool,virtual
+// или другой бенчмарк по имени: LedgerBenchmark -t 8
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class);
+        // без явного имени бенчмарка в аргументах запускается StudentUpdateBenchmark
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            options.include(StudentUpdateBenchmark.class.getSimpleName());
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,126 @@
+package com.paul.startclass.benchmarks;
+
+import com.paul.startclass.services.Account;
+import com.paul.startclass.services.Bank;
+import com.paul.startclass.services.Ledger;
+import com.paul.startclass.services.Ledger.TransferBatch;
+import com.paul.startclass.services.SmartBank;
+import com.paul.startclass.services.SuperSmartBank;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Переводы между случайными счетами: Ledger (по одному и пачками) против Bank, SmartBank и SuperSmartBank.
+// У банков отключены sleep и println, сравнивается только схема блокировок.
+// Bank при встречных переводах дает deadlock, поэтому для него перевод всегда идет от меньшего индекса к большему.
+// Потоки: -t, по умолчанию все ядра. Запуск: -Djmh.args="LedgerBenchmark -p accounts=1000000"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(Threads.MAX)
+@Fork(1)
+public class LedgerBenchmark {
+
+    static final int BATCH_SIZE = 1024;
+
+    @Param({"1000000"})
+    int accounts;
+
+    @Param({"1024"})
+    int stripes;
+
+    private Ledger ledger;
+    private Account[] bankAccounts;
+    private Bank bank;
+    private SmartBank smartBank;
+    private SuperSmartBank superSmartBank;
+
+    @Setup(Level.Trial)
+    public void createAccounts() {
+        ledger = new Ledger(accounts, 1000, stripes);
+        bankAccounts = new Account[accounts];
+        for (int i = 0; i < accounts; i++) {
+            bankAccounts[i] = new Account();
+            bankAccounts[i].count = 1000;
+            bankAccounts[i].lock = new ReentrantLock();
+        }
+        bank = new Bank(0, false);
+        smartBank = new SmartBank(0, false);
+        superSmartBank = new SuperSmartBank(0, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void verifyConservation() {
+        ledger.verifyConservation();
+    }
+
+    @State(Scope.Thread)
+    public static class Transfers {
+        TransferBatch batch = new TransferBatch(BATCH_SIZE);
+    }
+
+    @Benchmark
+    public boolean ledger() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int fromId = random.nextInt(accounts);
+        return ledger.transfer(fromId, otherAccount(random, fromId), 1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public int ledgerBatch(Transfers transfers) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        TransferBatch batch = transfers.batch;
+        batch.clear();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            int fromId = random.nextInt(accounts);
+            batch.add(fromId, otherAccount(random, fromId), 1);
+        }
+        return ledger.transferAll(batch);
+    }
+
+    @Benchmark
+    public void bank() throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int fromId = random.nextInt(accounts);
+        int toId = otherAccount(random, fromId);
+        bank.transferMoney(bankAccounts[Math.min(fromId, toId)], bankAccounts[Math.max(fromId, toId)], 1);
+    }
+
+    @Benchmark
+    public void smartBank() throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int fromId = random.nextInt(accounts);
+        smartBank.transferMoney(bankAccounts[fromId], bankAccounts[otherAccount(random, fromId)], 1);
+    }
+
+    @Benchmark
+    public void superSmartBank() throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int fromId = random.nextInt(accounts);
+        superSmartBank.transferMoney(bankAccounts[fromId], bankAccounts[otherAccount(random, fromId)], 1);
+    }
+
+    private int otherAccount(ThreadLocalRandom random, int fromId) {
+        int toId = random.nextInt(accounts - 1);
+        return toId >= fromId ? toId + 1 : toId;
+    }
+}
@@ -0,0 +1,115 @@
+package com.paul.startclass.benchmarks;
+
+import com.paul.startclass.StartclassApplication;
+import com.paul.startclass.services.BatchResult;
+import com.paul.startclass.services.ExecutionMode;
+import com.paul.startclass.services.StudentBatchService;
+import com.paul.startclass.services.StudentPrefixService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+// Добавление префикса всеми стратегиями на одних и тех же данных во встроенной H2 (профиль embedded).
+// Одна операция - переписать имена всех rows строк, перед каждой операцией имена сбрасываются.
+// Кроме ops/s JMH покажет rows (строк в секунду) и, с GC профайлером, gc.alloc.rate
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class StudentUpdateBenchmark {
+
+    @Param({"40000"})
+    int rows;
+
+    // 0 - размер чанка по умолчанию для каждого режима
+    @Param({"0"})
+    int chunkSize;
+
+    @Param({"8"})
+    int threads;
+
+    @Param({"single", "pushdown", "bulk", "thread", "runnable", "pool", "semaphore", "virtual", "fork_join", "pipeline",
+            "partitioned"})
+    String strategy;
+
+    private ConfigurableApplicationContext context;
+    private StudentPrefixService studentPrefixService;
+    private StudentBatchService studentBatchService;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(StartclassApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=embedded",
+                        "--batch.seed.students=" + rows,
+                        // HTTP запросов нет: все соединения, кроме соединения читателя, - для чанков,
+                        // тогда ConnectionPoolScheduler дает ровно threads параллельных чанков
+                        "--spring.datasource.hikari.maximum-pool-size=" + (threads + 1),
+                        "--batch.pool.http-headroom=0",
+                        "--batch.pool.readers=1",
+                        "--batch.executor.threads=" + threads,
+                        "--batch.limiter.initial-limit=" + threads,
+                        "--batch.fork-join.parallelism=" + threads,
+                        "--batch.pipeline.writers=" + threads,
+                        "--batch.chunk-size=" + chunkSize,
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+        studentPrefixService = context.getBean(StudentPrefixService.class);
+        studentBatchService = context.getBean(StudentBatchService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetNames() {
+        jdbcTemplate.update("update sova.students set NAME = concat('Student', ID)");
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public BatchResult addPrefix(RowCounters counters) {
+        BatchResult result = switch (strategy) {
+            case "single" -> studentPrefixService.addPrefix(StudentPrefixService.Strategy.ENTITY);
+            case "pushdown" -> studentPrefixService.addPrefix(StudentPrefixService.Strategy.PUSHDOWN);
+            case "bulk" -> studentPrefixService.addPrefix(StudentPrefixService.Strategy.BULK);
+            default -> studentBatchService.addPrefix(ExecutionMode.of(strategy));
+        };
+        counters.rows += result.rowsAffected();
+        return result;
+    }
+
+    // Дополнительная метрика в отчете JMH: обработанные строки в секунду
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RowCounters {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+}
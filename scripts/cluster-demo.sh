@@ -0,0 +1,58 @@
+#!/usr/bin/env bash
+# Распределенная задача на двух JVM над одной H2 (профили embedded,cluster).
+# Узел A заполняет students, узел B стартует после него, задача создается на A, оба узла забирают
+# чанки сами (poll-seconds). С KILL_B=секунды узел B убивается kill -9 посреди задачи: его чанки
+# забирает A после истечения аренды, в итоге все чанки DONE.
+#   ./mvnw -q package -DskipTests && scripts/cluster-demo.sh
+#   KILL_B=3 scripts/cluster-demo.sh
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+JAR=${JAR:-$(ls target/startclass-*-exec.jar | head -1)}
+DB_FILE=${DB_FILE:-./target/cluster-demo/sova}
+ROWS_PER_RANGE=${ROWS_PER_RANGE:-1000}
+KILL_B=${KILL_B:-}
+LOG_DIR=$(dirname "$DB_FILE")
+ARGS="--spring.profiles.active=embedded,cluster --batch.cluster.db-file=$DB_FILE
+      --batch.distributed.poll-seconds=1 --batch.distributed.claim-size=2
+      --batch.distributed.lease-seconds=6 --batch.distributed.heartbeat-seconds=2"
+
+rm -rf "$LOG_DIR" && mkdir -p "$LOG_DIR"
+
+start_node() {
+    java -jar "$JAR" $ARGS --server.port="$1" > "$LOG_DIR/node-$1.log" 2>&1 &
+    echo $!
+}
+
+wait_ready() {
+    for _ in $(seq 120); do
+        curl -sf "localhost:$1/actuator/health/readiness" > /dev/null && return 0
+        sleep 1
+    done
+    echo "node on port $1 did not start, see $LOG_DIR/node-$1.log" >&2
+    return 1
+}
+
+PID_A=$(start_node 8087)
+PID_B=
+trap 'kill $PID_A $PID_B 2> /dev/null || true' EXIT
+wait_ready 8087
+PID_B=$(start_node 8088)
+wait_ready 8088
+
+JOB=$(curl -sf -X POST "localhost:8087/distributed-jobs?rowsPerRange=$ROWS_PER_RANGE" | sed 's/.*"jobId":"\([^"]*\)".*/\1/')
+echo "job $JOB"
+if [ -n "$KILL_B" ]; then
+    sleep "$KILL_B"
+    kill -9 "$PID_B"
+    echo "node B killed"
+fi
+
+for _ in $(seq 120); do
+    STATUS=$(curl -sf "localhost:8087/distributed-jobs/$JOB")
+    echo "$STATUS"
+    echo "$STATUS" | grep -Eq '"(PENDING|CLAIMED)"' || exit 0
+    sleep 2
+done
+echo "job $JOB did not finish" >&2
+exit 1
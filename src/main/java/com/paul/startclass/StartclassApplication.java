@@ -1,10 +1,9 @@
 package com.paul.startclass;
 
-import com.paul.startclass.models.BIblock;
-import com.paul.startclass.repository.BlockRepository;
 import com.paul.startclass.services.Test;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ConfigurableApplicationContext;
 
@@ -12,12 +11,14 @@ import org.springframework.context.ConfigurableApplicationContext;
 public class StartclassApplication {
 
 	public static void main(String[] args) {
-		ConfigurableApplicationContext applicationContext = SpringApplication.run(StartclassApplication.class, args);
+		SpringApplication application = new SpringApplication(StartclassApplication.class);
+		// шаги старта контекста и фазы прогрева кэша (BlockCacheWarmup) видны в /actuator/startup
+		application.setApplicationStartup(new BufferingApplicationStartup(4096));
+		ConfigurableApplicationContext applicationContext = application.run(args);
 
 		//TestInject
 		Test test = applicationContext.getBean(Test.class);
-		BlockRepository blockRepository = applicationContext.getBean(BlockRepository.class);
-		Iterable<BIblock> bIblocks = blockRepository.findAll();
+		// инфоблоки больше не читаются здесь: их загружает в кэш BlockCacheWarmup в фоне
 		System.out.println("test");
 	}
 
@@ -0,0 +1,83 @@
+package com.paul.startclass.controllers;
+
+import com.paul.startclass.models.BIblock;
+import com.paul.startclass.models.BIblockHeader;
+import com.paul.startclass.models.BIblockSummary;
+import com.paul.startclass.repository.BlockRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+// Инфоблоки: списки и поиск отдают проекции BIblockSummary/BIblockHeader,
+// полная сущность с DESCRIPTION читается только для /blocks/{id}/description.
+// Сущности и результаты запросов кэшируются (см. BIblock и BlockRepository), DELETE /blocks/cache сбрасывает кэш
+@RestController
+@RequestMapping("/blocks")
+public class BlockController {
+
+    @Autowired
+    BlockRepository blockRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @GetMapping
+    public List<BIblockSummary> list(@RequestParam(required = false) String code) {
+        return code == null ? blockRepository.findAllSummaries() : blockRepository.findSummariesByCode(code);
+    }
+
+    @GetMapping("/active")
+    public List<BIblockHeader> active() {
+        return blockRepository.findByActiveOrderBySortAsc("Y");
+    }
+
+    @GetMapping("/{id}")
+    public BIblockSummary get(@PathVariable int id) {
+        return blockRepository.findSummaryById(id).orElseThrow(() -> notFound(id));
+    }
+
+    // DESCRIPTION ленивый: догружается вторым запросом внутри транзакции при вызове getDescription()
+    @GetMapping("/{id}/description")
+    @Transactional(readOnly = true)
+    public String description(@PathVariable int id) {
+        BIblock block = blockRepository.findById(id).orElseThrow(() -> notFound(id));
+        return block.getDescription();
+    }
+
+    // Изменение через BlockRepository: запись в кэше сущностей обновится после коммита,
+    // а результаты запросов к b_iblock станут недействительными
+    @PatchMapping("/{id}")
+    @Transactional
+    public BIblockSummary rename(@PathVariable int id, @RequestParam String name) {
+        BIblock block = blockRepository.findById(id).orElseThrow(() -> notFound(id));
+        block.setName(name);
+        blockRepository.save(block);
+        return new BIblockSummary(block.getId(), block.getCode(), block.getName(), block.getActive());
+    }
+
+    // Если таблицу поменяли в обход Hibernate (SQL, другое приложение), кэш можно сбросить не дожидаясь TTL
+    @DeleteMapping("/cache")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void evictCache() {
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        cache.evictEntityData(BIblock.class);
+        cache.evictQueryRegion(BlockRepository.QUERY_CACHE_REGION);
+    }
+
+    private ResponseStatusException notFound(int id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Block " + id + " not found");
+    }
+}
@@ -0,0 +1,24 @@
+package com.paul.startclass.controllers;
+
+import com.paul.startclass.services.LockWatchdog;
+import com.paul.startclass.services.LockWatchdog.LockReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+// GET /diagnostics/locks - циклы deadlock со стеками участников и самые конкурентные блокировки.
+// Перед ответом выполняется внеочередная проверка, чтобы только что созданный deadlock был виден сразу
+@RestController
+@RequestMapping("/diagnostics")
+public class DiagnosticsController {
+
+    @Autowired
+    LockWatchdog lockWatchdog;
+
+    @GetMapping("/locks")
+    public LockReport locks() {
+        lockWatchdog.check();
+        return lockWatchdog.report();
+    }
+}
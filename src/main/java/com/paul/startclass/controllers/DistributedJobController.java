@@ -0,0 +1,45 @@
+package com.paul.startclass.controllers;
+
+import com.paul.startclass.services.BatchResult;
+import com.paul.startclass.services.DistributedChunkService;
+import com.paul.startclass.services.DistributedChunkService.JobStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+// Распределенное добавление префиксов: POST /distributed-jobs создает чанки в БД (на любом экземпляре),
+// POST /distributed-jobs/work - этот экземпляр разбирает свободные чанки до конца и возвращает свой итог,
+// GET /distributed-jobs/{id} - чанки по статусам и строки по экземплярам.
+// С batch.distributed.poll-seconds экземпляры забирают чанки сами, без /work
+@RestController
+@RequestMapping("/distributed-jobs")
+public class DistributedJobController {
+
+    @Autowired
+    DistributedChunkService distributedChunkService;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public JobStatus create(@RequestParam(defaultValue = "5000") int rowsPerRange) {
+        return distributedChunkService.createJob(rowsPerRange);
+    }
+
+    @PostMapping("/work")
+    public BatchResult work() {
+        return distributedChunkService.work().orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                "Node " + distributedChunkService.nodeId() + " is already working on chunks"));
+    }
+
+    @GetMapping("/{id}")
+    public JobStatus get(@PathVariable String id) {
+        return distributedChunkService.status(id).orElseThrow(
+                () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Distributed job " + id + " not found"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.paul.startclass.controllers;
+
+import com.paul.startclass.services.BatchJob;
+import com.paul.startclass.services.BatchJobService;
+import com.paul.startclass.services.ExecutionMode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collection;
+
+// Фоновые задачи: POST /jobs?type=pool запускает добавление префиксов и сразу возвращает id,
+// GET /jobs/{id} - прогресс (чанки, строки в секунду, ETA), DELETE /jobs/{id} - отмена
+@RestController
+@RequestMapping("/jobs")
+public class JobController {
+
+    @Autowired
+    BatchJobService batchJobService;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public BatchJob start(@RequestParam(defaultValue = "pool") String type) {
+        ExecutionMode mode;
+        try {
+            mode = ExecutionMode.of(type);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return batchJobService.startAddPrefix(mode);
+    }
+
+    @GetMapping
+    public Collection<BatchJob> list() {
+        return batchJobService.findAll();
+    }
+
+    @GetMapping("/{id}")
+    public BatchJob get(@PathVariable String id) {
+        return batchJobService.find(id).orElseThrow(() -> notFound(id));
+    }
+
+    @DeleteMapping("/{id}")
+    public BatchJob cancel(@PathVariable String id) {
+        return batchJobService.cancel(id).orElseThrow(() -> notFound(id));
+    }
+
+    private ResponseStatusException notFound(String id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Job " + id + " not found");
+    }
+}
@@ -1,27 +1,34 @@
 package com.paul.startclass.controllers;
 
-import com.paul.startclass.models.Student;
 import com.paul.startclass.repository.StudentRepository;
+import com.paul.startclass.services.Account;
+import com.paul.startclass.services.AccountTransferService;
 import com.paul.startclass.services.AsyncTester;
+import com.paul.startclass.services.Bank;
+import com.paul.startclass.services.BatchResult;
+import com.paul.startclass.services.ExecutionMode;
+import com.paul.startclass.services.LedgerService;
+import com.paul.startclass.services.SmartBank;
+import com.paul.startclass.services.StudentBatchService;
+import com.paul.startclass.services.StudentPrefixService;
+import com.paul.startclass.services.StudentSeeder;
+import com.paul.startclass.services.SuperSmartBank;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 @Configuration
 @EnableAsync
@@ -31,16 +38,18 @@ public class MultithreadingController {
     @Autowired
     StudentRepository studentRepository;
 
-    //  ----- 1 Сгенерировать 40000 записей для начала тестирования, автоматически будет создана таблица Student  -----
+    @Autowired
+    StudentSeeder studentSeeder;
+
+    //  ----- 1 Сгенерировать записи для начала тестирования (по умолчанию 40000), автоматически будет создана таблица Student  -----
+    // Вставка идет пачками по batchSize строк: JDBC batch + очистка контекста после каждой пачки, память не растет
     @GetMapping("/generate-rows")
-    public String generateRows(){
-        ArrayList<Student> students = new ArrayList<>();
-        for (int i=0; i<40000; i++){
-            Student student = new Student();
-            student.setName("Student" + i);
-            students.add(student);
-        }
-        this.studentRepository.saveAll(students);
+    public String generateRows(@RequestParam(defaultValue = "40000") int count,
+                               @RequestParam(defaultValue = "1000") int batchSize,
+                               Model model){
+        BatchResult result = this.studentSeeder.seed(count, batchSize);
+        System.out.println(result);
+        model.addAttribute("result", result);
         return "test";
     }
 
@@ -51,143 +60,95 @@ public class MultithreadingController {
         return "test";
     }
 
+    @Autowired
+    StudentPrefixService studentPrefixService;
+
     //  ----- 2 Добавить префиксы без многопоточности, примерное время для 40000 записей 6 секунд -----
+    // strategy=entity - читаем сущности и сохраняем каждую, strategy=pushdown - UPDATE по диапазонам ID на стороне БД,
+    // strategy=bulk - пачки JDBC UPDATE без контекста персистентности
     @GetMapping("/singlethreading-add-prefix")
-    public String singlethreadingAddPrefix(){
-        Iterable<Student> students = this.studentRepository.findAll();
-        long startTime = System.currentTimeMillis();
-        System.out.println("Time: " + System.currentTimeMillis());
-
-        StreamSupport.stream(students.spliterator(),false)
-                .forEach(student -> student.setName(student.getName() + " prefix1"));
-        this.studentRepository.saveAll(students);
-
-        long finishTime = System.currentTimeMillis();
-        System.out.println("Operation completed, Time = " + ((finishTime - startTime) / 1000) + " seconds");
+    public String singlethreadingAddPrefix(@RequestParam(defaultValue = "entity") String strategy, Model model){
+        BatchResult result = this.studentPrefixService.addPrefix(StudentPrefixService.Strategy.of(strategy));
+        System.out.println("Operation completed, " + result);
+        model.addAttribute("result", result);
         return "test";
     }
 
     //  ----- 3 Удаление префиксов без многопоточности, время выполнения для 40000 записей 5 секунд -----
     @GetMapping("/singlethreading-delete-prefix")
-    public String singlethreadingDeletePrefix(Model model){
-        Iterable<Student> students = this.studentRepository.findAll();
-        long startTime = System.currentTimeMillis();
-
-        StreamSupport.stream(students.spliterator(),false)
-                .forEach(student -> student.setName(student.getName().replace(" prefix1","")));
-        this.studentRepository.saveAll(students);
-
-        long finishTime = System.currentTimeMillis();
-        System.out.println("Operation completed, Time = " + ((finishTime - startTime) / 1000) + " seconds");
+    public String singlethreadingDeletePrefix(@RequestParam(defaultValue = "entity") String strategy, Model model){
+        BatchResult result = this.studentPrefixService.removePrefix(StudentPrefixService.Strategy.of(strategy));
+        System.out.println("Operation completed, " + result);
+        model.addAttribute("result", result);
         return "test";
     }
 
+    @Autowired
+    StudentBatchService studentBatchService;
+
     //  ----- 4 Добавление префиксов с помощью многопоточности через Thread(), лучшее время для 40000 записей 2 секунды -----
     @GetMapping("/multithreading-add-prefix")
-    public String multithreadingAddPrefix(){
-        ArrayList<Student> students = (ArrayList<Student>) this.studentRepository.findAll();
-        Long startTime = System.currentTimeMillis();
-
-        Integer countRows = students.size();
-        Integer countElementsOnThread = 5000;
-        Integer pages = countRows / countElementsOnThread + 1;
-        StudentRepository studentRepository = this.studentRepository;
-
-        for(int n = 0; n < pages; n++){
-            Integer i = n;
-
-            Thread thread = new Thread(){
-                public void run() {
-                    List<Student> studentsThread = students.stream()
-                            .skip(countElementsOnThread * i)
-                            .limit(countElementsOnThread)
-                            .peek(bIblockElement -> bIblockElement.setName(bIblockElement.getName() + " prefix1"))
-                            .collect(Collectors.toList());
-                    studentRepository.saveAll(studentsThread);
-                    long finishTime = System.currentTimeMillis();
-                    System.out.println("Operation completed, Time = " + ((finishTime - startTime) / 1000) + " seconds");
-                }
-            };
-            thread.start();
-
-        }
-        return "test";
+    public String multithreadingAddPrefix(Model model){
+        return addPrefix(ExecutionMode.THREAD, model);
     }
 
-
-
     //  ----- 5 Добавление префиксов с помощью многопоточности через Runnable(), лучшее время для 40000 записей 2 секунды -----
     @GetMapping("/multithreading-via-runnable-add-prefix")
-    public String multithreadingViaRunnableAddPrefix(){
-        ArrayList<Student> students = (ArrayList<Student>) this.studentRepository.findAll();
-        Long startTime = System.currentTimeMillis();
-
-        Integer countRows = students.size();
-        Integer countElementsOnThread = 5000;
-        Integer pages = countRows / countElementsOnThread + 1;
-        StudentRepository studentRepository = this.studentRepository;
-
-        for(int n = 0; n < pages; n++){
-            Integer i = n;
-
-            Runnable runnable = () -> {
-                List<Student> studentsThread = students.stream()
-                        .skip(countElementsOnThread * i)
-                        .limit(countElementsOnThread)
-                        .peek(bIblockElement -> bIblockElement.setName(bIblockElement.getName() + " prefix1"))
-                        .collect(Collectors.toList());
-                studentRepository.saveAll(studentsThread);
-                long finishTime = System.currentTimeMillis();
-                System.out.println("Operation completed, Time = " + ((finishTime - startTime) / 1000) + " seconds");
-            };
-
-            Thread thread = new Thread(runnable);
-            thread.start();
-
-        }
-        return "test";
+    public String multithreadingViaRunnableAddPrefix(Model model){
+        return addPrefix(ExecutionMode.RUNNABLE, model);
     }
 
+    //  ----- 6 Добавление префиксов через пул потоков, лучшее время для 40000 записей 2 секунды, выгодно когда мы знаем максимальное доступное количество потоков -----
+    @GetMapping("/multithreading-thread-pool")
+    public String multithreadingThreadPool(Model model){
+        return addPrefix(ExecutionMode.POOL, model);
+    }
 
+    //  ----- 6.1 Добавление префиксов через Fork/Join: диапазон ID делится до порога, свободные потоки забирают чужие задачи -----
+    @GetMapping("/multithreading-fork-join")
+    public String multithreadingForkJoin(Model model){
+        return addPrefix(ExecutionMode.FORK_JOIN, model);
+    }
 
+    //  ----- 6.2 Добавление префиксов в виртуальных потоках: поток на каждый чанк из 500 строк, -----
+    // одновременно с БД работает не больше потоков, чем соединений в пуле
+    @GetMapping("/multithreading-virtual-threads")
+    public String multithreadingVirtualThreads(Model model){
+        return addPrefix(ExecutionMode.VIRTUAL, model);
+    }
 
-    //  ----- 6 Добавление префиксов через пул потоков, лучшее время для 40000 записей 2 секунды, выгодно когда мы знаем максимальное доступное количество потоков -----
-    @GetMapping("/multithreading-thread-pool")
-    public String multithreadingThreadPool(){
-        ArrayList<Student> students = (ArrayList<Student>) this.studentRepository.findAll();
-        Long startTime = System.currentTimeMillis();
-
-
-        int countOfThreads = 8;
-        Integer countRows = students.size();
-        Integer countElementsOnThread = 5000;
-        Integer pages = countRows / countElementsOnThread + 1;
-        StudentRepository studentRepository = this.studentRepository;
-
-        ExecutorService executorService = Executors.newFixedThreadPool(countOfThreads);
-
-        for(int n = 0; n < pages; n++){
-            Integer i = n;
-            Runnable runnable = () -> {
-                List<Student> studentsThread = students.stream()
-                        .skip(countElementsOnThread * i)
-                        .limit(countElementsOnThread)
-                        .peek(bIblockElement -> bIblockElement.setName(bIblockElement.getName() + " prefix1"))
-                        .collect(Collectors.toList());
-                studentRepository.saveAll(studentsThread);
-                long finishTime = System.currentTimeMillis();
-                System.out.println("Operation completed, Time = " + ((finishTime - startTime) / 1000) + " seconds");
-            };
-            executorService.execute(runnable);
+    //  ----- 6.3 Сравнение режимов друг за другом на одних данных, например ?modes=pool,virtual -----
+    @GetMapping("/multithreading-compare")
+    public String multithreadingCompare(@RequestParam(defaultValue = "pool,virtual") List<String> modes, Model model){
+        List<BatchResult> results = new ArrayList<>();
+        for (String mode : modes) {
+            BatchResult result = this.studentBatchService.addPrefix(ExecutionMode.of(mode));
+            System.out.println("Operation completed, " + result);
+            results.add(result);
         }
-        // После выполнения всех задач закрываем executorService
-        executorService.shutdown();
+        model.addAttribute("results", results);
+        return "test";
+    }
 
-        while (!executorService.isTerminated()) {
-            long finishTime = System.currentTimeMillis();
-            System.out.println("executorService completed, Time = " + ((finishTime - startTime) / 1000) + " seconds");
-        }
+    //  ----- 6.4 Конвейер: читатель, преобразователь и писатели связаны ограниченными очередями, -----
+    // чтение следующих страниц идет одновременно с записью предыдущих
+    @GetMapping("/multithreading-pipeline")
+    public String multithreadingPipeline(Model model){
+        return addPrefix(ExecutionMode.PIPELINE, model);
+    }
 
+    //  ----- 6.5 Параллельное чтение: каждый воркер сам читает, меняет и пишет свой диапазон ID -----
+    // на своем соединении, общего читателя нет
+    @GetMapping("/multithreading-partitioned")
+    public String multithreadingPartitioned(Model model){
+        return addPrefix(ExecutionMode.PARTITIONED, model);
+    }
+
+    // Чанки обрабатываются BatchProcessingEngine, метод ждет завершения всех чанков и отдает общий результат
+    private String addPrefix(ExecutionMode mode, Model model){
+        BatchResult result = this.studentBatchService.addPrefix(mode);
+        System.out.println("Operation completed, " + result);
+        model.addAttribute("result", result);
         return "test";
     }
 
@@ -208,51 +169,10 @@ public class MultithreadingController {
 
     //  ----- 8 Тестирую Semaphore -----
     // В этом примере я разрешаю работать с определенном участком кода только для 8 потоков из 40 одновременно
+    // Разрешения фиксированные (batch.semaphore.permits) - база для сравнения с AdaptiveConcurrencyLimiter других режимов
     @GetMapping("/multithreading-semaphore")
-    public String multithreadingSemaphore(){
-        Semaphore semaphore = new Semaphore(8);
-
-        ArrayList<Student> students = (ArrayList<Student>) this.studentRepository.findAll();
-        Long startTime = System.currentTimeMillis();
-
-        int countOfThreads = 40;
-        Integer countElementsOnThread = 1000;
-
-        Integer countRows = students.size();
-        Integer pages = countRows / countElementsOnThread + 1;
-        StudentRepository studentRepository = this.studentRepository;
-
-
-        for(int n = 0; n < pages; n++) {
-            Integer i = n;
-            Thread thread = new Thread(){
-                public void run(){
-                    try {
-                        semaphore.acquire();
-                        System.out.println("started " + Thread.currentThread().getName());
-
-
-                        List<Student> studentsThread = students.stream()
-                                .skip(countElementsOnThread * i)
-                                .limit(countElementsOnThread)
-                                .peek(bIblockElement -> bIblockElement.setName(bIblockElement.getName() + " prefix1"))
-                                .collect(Collectors.toList());
-                        studentRepository.saveAll(studentsThread);
-
-
-                        long finishTime = System.currentTimeMillis();
-                        System.out.println("Operation completed, Time = " + ((finishTime - startTime) / 1000) + " seconds");
-                        System.out.println("finished " + Thread.currentThread().getName());
-                        semaphore.release();
-                    } catch (InterruptedException e) {
-                        System.out.println("We already have very many threads for executing");
-                    }
-
-                }
-            };
-            thread.start();
-        }
-        return "test";
+    public String multithreadingSemaphore(Model model){
+        return addPrefix(ExecutionMode.SEMAPHORE, model);
     }
 
 
@@ -343,6 +263,7 @@ public class MultithreadingController {
 
 
     // Пример DeadLock, в результате не будет выполнен перевод, т к 2 потока взаимно заблокировали друг друга
+    // Цикл и стеки обоих потоков покажет /diagnostics/locks (LockWatchdog)
     @GetMapping("/multithreading-deadlock")
     public String multithreadingDeadLock(){
 
@@ -435,76 +356,38 @@ public class MultithreadingController {
         return "Test";
     }
 
-    class Account{
-        public int count;
-        public Lock lock;
-    }
-
-    class Bank{
-        public void transferMoney(Account fromAccount, Account toAccount, int amount) throws InterruptedException {
-            synchronized (fromAccount) {
-                Thread.sleep(100);
-                synchronized (toAccount) {
-                    fromAccount.count = fromAccount.count - amount;
-                    toAccount.count = toAccount.count + amount;
-                    System.out.println("Operation's completed");
-                }
-            }
-        }
-    }
-
-
-    class SmartBank{
-        public void transferMoney(Account fromAccount, Account toAccount, int amount) throws InterruptedException {
-            Account firstAccount, secondAccount;
-            if(fromAccount.hashCode() > toAccount.hashCode()){
-                firstAccount = fromAccount;
-                secondAccount = toAccount;
-            }else {
-                firstAccount = toAccount;
-                secondAccount = fromAccount;
-            }
-
-            synchronized (firstAccount) {
-                Thread.sleep(100);
-                synchronized (secondAccount) {
-                    fromAccount.count = fromAccount.count - amount;
-                    toAccount.count = toAccount.count + amount;
-                    System.out.println("From Smart Bank Operation's completed");
-                }
-            }
-        }
+    @Autowired
+    LedgerService ledgerService;
+
+    // Книга счетов вместо Bank: балансы в массиве, блокировки полосами по номеру счета, переводы пачками.
+    // После прогона проверяется, что сумма денег не изменилась
+    @GetMapping("/ledger-transfers")
+    public String ledgerTransfers(@RequestParam(defaultValue = "10000000") long transfers,
+                                  @RequestParam(defaultValue = "0") int threads, Model model) throws InterruptedException {
+        model.addAttribute("result", ledgerService.transferRandom(transfers, threads));
+        return "test";
     }
 
-    class SuperSmartBank{
-        public void transferMoney(Account fromAccount, Account toAccount, int amount) throws InterruptedException {
-            while(true) {
-                if (fromAccount.lock.tryLock()) {
-                    Thread.sleep(100);
-                    if (toAccount.lock.tryLock()) {
-                        try {
-                            //do something
-                            fromAccount.count = fromAccount.count - amount;
-                            toAccount.count = toAccount.count + amount;
-                            System.out.println(Thread.currentThread().getName()+" From Smart Bank Operation's completed");
-                            break;
-                        } finally {
-                            toAccount.lock.unlock();
-                            fromAccount.lock.unlock();
-                        }
-                    } else {
-                        fromAccount.lock.unlock();
-                    }
-                }
-                System.out.println("Attempt");
-            }
+    @Autowired
+    AccountTransferService accountTransferService;
+
+    // Переводы между счетами в БД с оптимистической блокировкой (@Version) вместо tryLock в цикле:
+    // при конфликте перевод повторяется после случайной паузы, попыток ограниченное количество.
+    // skew - доля переводов между первыми hot счетами, чем она больше, тем больше конфликтов
+    @GetMapping("/account-transfers")
+    public String accountTransfers(@RequestParam(defaultValue = "1000") int accounts,
+                                   @RequestParam(defaultValue = "5000") long transfers,
+                                   @RequestParam(defaultValue = "8") int threads,
+                                   @RequestParam(defaultValue = "10") int hot,
+                                   @RequestParam(defaultValue = "0.5") double skew, Model model) throws InterruptedException {
+        try {
+            model.addAttribute("result", accountTransferService.transferRandom(accounts, 1000, transfers, threads, hot, skew));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
+        return "test";
     }
 
-
-
-
-
     // Тестируем wait(), notify(), notifyAll()
     // Класс Магазин, хранящий произведенные товары
     class Store{
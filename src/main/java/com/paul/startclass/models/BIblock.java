@@ -1,11 +1,16 @@
 package com.paul.startclass.models;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.sql.Timestamp;
-import java.util.Objects;
 
+// Справочник, который почти не меняется: сущности лежат в кэше второго уровня (регион b_iblock в ehcache.xml).
+// READ_WRITE: при изменении через JPA запись в кэше блокируется и обновляется после коммита
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "b_iblock")
 @Table(name = "b_iblock", schema = "sova", catalog = "")
 public class BIblock {
     private int id;
@@ -191,7 +196,8 @@ public class BIblock {
         this.picture = picture;
     }
 
-    @Basic
+    // TEXT: читается отдельным запросом при первом обращении (нужен bytecode enhancement, см. pom.xml)
+    @Basic(fetch = FetchType.LAZY)
     @Column(name = "DESCRIPTION", nullable = true, length = -1)
     public String getDescription() {
         return description;
@@ -471,16 +477,18 @@ public class BIblock {
         this.elementName = elementName;
     }
 
+    // Равенство по ID: сравнение всех колонок читало бы ленивый DESCRIPTION и догружало его
+    // при каждом equals/hashCode (в том числе в HashSet/HashMap)
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         BIblock bIblock = (BIblock) o;
-        return id == bIblock.id && sort == bIblock.sort && rssTtl == bIblock.rssTtl && version == bIblock.version && lastConvElement == bIblock.lastConvElement && Objects.equals(timestampX, bIblock.timestampX) && Objects.equals(iblockTypeId, bIblock.iblockTypeId) && Objects.equals(lid, bIblock.lid) && Objects.equals(code, bIblock.code) && Objects.equals(apiCode, bIblock.apiCode) && Objects.equals(name, bIblock.name) && Objects.equals(active, bIblock.active) && Objects.equals(listPageUrl, bIblock.listPageUrl) && Objects.equals(detailPageUrl, bIblock.detailPageUrl) && Objects.equals(sectionPageUrl, bIblock.sectionPageUrl) && Objects.equals(canonicalPageUrl, bIblock.canonicalPageUrl) && Objects.equals(picture, bIblock.picture) && Objects.equals(description, bIblock.description) && Objects.equals(descriptionType, bIblock.descriptionType) && Objects.equals(rssActive, bIblock.rssActive) && Objects.equals(rssFileActive, bIblock.rssFileActive) && Objects.equals(rssFileLimit, bIblock.rssFileLimit) && Objects.equals(rssFileDays, bIblock.rssFileDays) && Objects.equals(rssYandexActive, bIblock.rssYandexActive) && Objects.equals(xmlId, bIblock.xmlId) && Objects.equals(tmpId, bIblock.tmpId) && Objects.equals(indexElement, bIblock.indexElement) && Objects.equals(indexSection, bIblock.indexSection) && Objects.equals(workflow, bIblock.workflow) && Objects.equals(bizproc, bIblock.bizproc) && Objects.equals(sectionChooser, bIblock.sectionChooser) && Objects.equals(listMode, bIblock.listMode) && Objects.equals(rightsMode, bIblock.rightsMode) && Objects.equals(sectionProperty, bIblock.sectionProperty) && Objects.equals(propertyIndex, bIblock.propertyIndex) && Objects.equals(socnetGroupId, bIblock.socnetGroupId) && Objects.equals(editFileBefore, bIblock.editFileBefore) && Objects.equals(editFileAfter, bIblock.editFileAfter) && Objects.equals(sectionsName, bIblock.sectionsName) && Objects.equals(sectionName, bIblock.sectionName) && Objects.equals(elementsName, bIblock.elementsName) && Objects.equals(elementName, bIblock.elementName);
+        return id == bIblock.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, timestampX, iblockTypeId, lid, code, apiCode, name, active, sort, listPageUrl, detailPageUrl, sectionPageUrl, canonicalPageUrl, picture, description, descriptionType, rssTtl, rssActive, rssFileActive, rssFileLimit, rssFileDays, rssYandexActive, xmlId, tmpId, indexElement, indexSection, workflow, bizproc, sectionChooser, listMode, rightsMode, sectionProperty, propertyIndex, version, lastConvElement, socnetGroupId, editFileBefore, editFileAfter, sectionsName, sectionName, elementsName, elementName);
+        return Integer.hashCode(id);
     }
 }
@@ -0,0 +1,13 @@
+package com.paul.startclass.models;
+
+// Интерфейсная проекция: Spring Data подставляет в запрос только колонки геттеров,
+// удобна, когда набор полей меняется чаще, чем хочется заводить запись
+public interface BIblockHeader {
+    int getId();
+
+    String getCode();
+
+    String getName();
+
+    String getIblockTypeId();
+}
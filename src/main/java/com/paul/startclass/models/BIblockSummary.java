@@ -0,0 +1,6 @@
+package com.paul.startclass.models;
+
+// Проекция инфоблока для списков и поиска: 4 колонки из ~45, без TEXT поля DESCRIPTION.
+// Запрос выбирает только эти колонки и создает запись напрямую, без сущности в контексте и ее снимка
+public record BIblockSummary(int id, String code, String name, String active) {
+}
@@ -0,0 +1,52 @@
+package com.paul.startclass.models;
+
+import jakarta.persistence.*;
+
+// Счет в БД для переводов с оптимистической блокировкой: UPDATE ... WHERE ID = ? AND VERSION = ?,
+// если строку успел изменить другой перевод, транзакция откатывается и перевод повторяется
+@Entity
+@Table(name = "accounts", schema = "sova", catalog = "")
+public class BankAccount {
+    private int id;
+    private long balance;
+    private Long version;
+
+    public BankAccount() {
+    }
+
+    public BankAccount(int id, long balance) {
+        this.id = id;
+        this.balance = balance;
+    }
+
+    @Id
+    @Column(name = "ID", nullable = false)
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    @Basic
+    @Column(name = "BALANCE", nullable = false)
+    public long getBalance() {
+        return balance;
+    }
+
+    public void setBalance(long balance) {
+        this.balance = balance;
+    }
+
+    // null у нового счета: по нему Spring Data понимает, что счет нужно вставить, а не обновить
+    @Version
+    @Column(name = "VERSION", nullable = false)
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
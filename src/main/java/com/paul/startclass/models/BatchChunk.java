@@ -0,0 +1,148 @@
+package com.paul.startclass.models;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Чанк распределенной задачи: диапазон ID, который забирает один из экземпляров приложения.
+// PENDING -> CLAIMED (OWNER, HEARTBEAT_AT) -> DONE. Захваченный чанк, у которого HEARTBEAT_AT старше
+// срока аренды, снова доступен для захвата: экземпляр-владелец упал или завис.
+// ATTEMPTS - сколько раз чанк захватывали и не завершили, после max-attempts чанк становится FAILED
+@Entity
+@Table(name = "batch_chunks", schema = "sova", catalog = "",
+        indexes = @Index(name = "IX_BATCH_CHUNKS_STATUS", columnList = "STATUS, HEARTBEAT_AT"))
+public class BatchChunk {
+
+    public static final String PENDING = "PENDING";
+    public static final String CLAIMED = "CLAIMED";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    private String id;
+    private String jobId;
+    private int chunkNo;
+    private int fromId;
+    private int toId;
+    private String status;
+    private String owner;
+    private LocalDateTime heartbeatAt;
+    private int attempts;
+    private int rowsWritten;
+
+    public BatchChunk() {
+    }
+
+    public BatchChunk(String jobId, int chunkNo, int fromId, int toId) {
+        this.id = jobId + "-" + chunkNo;
+        this.jobId = jobId;
+        this.chunkNo = chunkNo;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.status = PENDING;
+    }
+
+    @Id
+    @Column(name = "ID", nullable = false, length = 64)
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    @Basic
+    @Column(name = "JOB_ID", nullable = false, length = 36)
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    @Basic
+    @Column(name = "CHUNK_NO", nullable = false)
+    public int getChunkNo() {
+        return chunkNo;
+    }
+
+    public void setChunkNo(int chunkNo) {
+        this.chunkNo = chunkNo;
+    }
+
+    @Basic
+    @Column(name = "FROM_ID", nullable = false)
+    public int getFromId() {
+        return fromId;
+    }
+
+    public void setFromId(int fromId) {
+        this.fromId = fromId;
+    }
+
+    @Basic
+    @Column(name = "TO_ID", nullable = false)
+    public int getToId() {
+        return toId;
+    }
+
+    public void setToId(int toId) {
+        this.toId = toId;
+    }
+
+    @Basic
+    @Column(name = "STATUS", nullable = false, length = 16)
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    @Basic
+    @Column(name = "OWNER", nullable = true, length = 128)
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    @Basic
+    @Column(name = "HEARTBEAT_AT", nullable = true)
+    public LocalDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) {
+        this.heartbeatAt = heartbeatAt;
+    }
+
+    @Basic
+    @Column(name = "ATTEMPTS", nullable = false)
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    @Basic
+    @Column(name = "ROWS_WRITTEN", nullable = false)
+    public int getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public void setRowsWritten(int rowsWritten) {
+        this.rowsWritten = rowsWritten;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchChunk[" + id + ", " + fromId + ".." + toId + "]";
+    }
+}
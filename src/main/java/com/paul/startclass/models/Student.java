@@ -9,7 +9,8 @@ public class Student {
     private String name;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_seq")
+    @SequenceGenerator(name = "student_seq", sequenceName = "Student_SEQ", allocationSize = 50)
     @Column(name = "ID", nullable = false)
     public int getId() {
         return id;
@@ -0,0 +1,17 @@
+package com.paul.startclass.repository;
+
+import com.paul.startclass.models.BankAccount;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+public interface BankAccountRepository extends CrudRepository<BankAccount, Integer> {
+
+    @Query("select coalesce(sum(a.balance), 0) from BankAccount a")
+    long totalBalance();
+
+    // Один DELETE без выборки счетов в контекст
+    @Modifying
+    @Query("delete from BankAccount")
+    int deleteAllAccounts();
+}
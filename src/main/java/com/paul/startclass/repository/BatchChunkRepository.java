@@ -0,0 +1,89 @@
+package com.paul.startclass.repository;
+
+import com.paul.startclass.models.BatchChunk;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+// Время аренды везде считает БД (CURRENT_TIMESTAMP), а не часы экземпляров,
+// поэтому расхождение часов между машинами не влияет на то, какой чанк считается брошенным
+public interface BatchChunkRepository extends CrudRepository<BatchChunk, String> {
+
+    // Блокирует до limit свободных чанков: PENDING или CLAIMED с истекшей арендой, у которого остались попытки.
+    // SKIP LOCKED пропускает строки, которые прямо сейчас захватывает другой экземпляр, вместо ожидания их
+    // блокировки, поэтому экземпляры разбирают разные чанки и не ждут друг друга. MySQL 8, H2 2.2
+    @Query(value = "select * from sova.batch_chunks where (STATUS = 'PENDING' or (STATUS = 'CLAIMED'"
+            + " and HEARTBEAT_AT < timestampadd(SECOND, -:leaseSeconds, current_timestamp) and ATTEMPTS < :maxAttempts))"
+            + " order by JOB_ID, CHUNK_NO limit :limit for update skip locked",
+            nativeQuery = true)
+    List<BatchChunk> lockClaimable(@Param("leaseSeconds") int leaseSeconds, @Param("maxAttempts") int maxAttempts,
+                                   @Param("limit") int limit);
+
+    // Аренда истекла, а попыток больше нет: экземпляры, бравшие чанк, падали на нем (или зависали) max-attempts раз
+    @Modifying
+    @Query(value = "update sova.batch_chunks set STATUS = 'FAILED' where STATUS = 'CLAIMED'"
+            + " and HEARTBEAT_AT < timestampadd(SECOND, -:leaseSeconds, current_timestamp) and ATTEMPTS >= :maxAttempts",
+            nativeQuery = true)
+    int failExpired(@Param("leaseSeconds") int leaseSeconds, @Param("maxAttempts") int maxAttempts);
+
+    // В той же транзакции, что и lockClaimable: строки уже заблокированы этим экземпляром
+    @Modifying
+    @Query(value = "update sova.batch_chunks set STATUS = 'CLAIMED', OWNER = :owner, HEARTBEAT_AT = current_timestamp,"
+            + " ATTEMPTS = ATTEMPTS + 1 where ID in (:ids)", nativeQuery = true)
+    int claim(@Param("ids") Collection<String> ids, @Param("owner") String owner);
+
+    @Modifying
+    @Query(value = "update sova.batch_chunks set HEARTBEAT_AT = current_timestamp"
+            + " where OWNER = :owner and STATUS = 'CLAIMED'", nativeQuery = true)
+    int heartbeat(@Param("owner") String owner);
+
+    // 0 строк - чанк уже забрал другой экземпляр (аренда истекла), результат этого экземпляра не засчитывается
+    @Modifying
+    @Query(value = "update sova.batch_chunks set STATUS = 'DONE', ROWS_WRITTEN = :rows, HEARTBEAT_AT = current_timestamp"
+            + " where ID = :id and OWNER = :owner and STATUS = 'CLAIMED'", nativeQuery = true)
+    int complete(@Param("id") String id, @Param("owner") String owner, @Param("rows") int rows);
+
+    // Чанки, на которых упала обработка: попытка засчитана при захвате, без попыток - FAILED (OWNER остается),
+    // иначе снова PENDING
+    @Modifying
+    @Query(value = "update sova.batch_chunks set STATUS = case when ATTEMPTS >= :maxAttempts then 'FAILED' else 'PENDING' end,"
+            + " OWNER = case when ATTEMPTS >= :maxAttempts then OWNER else null end"
+            + " where ID in (:ids) and OWNER = :owner and STATUS = 'CLAIMED'", nativeQuery = true)
+    int releaseFailed(@Param("ids") Collection<String> ids, @Param("owner") String owner,
+                      @Param("maxAttempts") int maxAttempts);
+
+    // Остальные незавершенные чанки экземпляра (отменены или не начаты) сразу возвращаются в PENDING,
+    // не дожидаясь конца аренды. Попытка, засчитанная при захвате, возвращается: чанк не виноват в ошибке соседа
+    @Modifying
+    @Query(value = "update sova.batch_chunks set STATUS = 'PENDING', OWNER = null, ATTEMPTS = ATTEMPTS - 1"
+            + " where OWNER = :owner and STATUS = 'CLAIMED'", nativeQuery = true)
+    int releaseUnfinished(@Param("owner") String owner);
+
+    @Query("select c.status as status, count(c) as chunks, coalesce(sum(c.rowsWritten), 0) as rows"
+            + " from BatchChunk c where c.jobId = :jobId group by c.status")
+    List<StatusCount> countByStatus(@Param("jobId") String jobId);
+
+    @Query("select c.owner as owner, count(c) as chunks, coalesce(sum(c.rowsWritten), 0) as rows"
+            + " from BatchChunk c where c.jobId = :jobId and c.status = 'DONE' group by c.owner")
+    List<OwnerCount> countDoneByOwner(@Param("jobId") String jobId);
+
+    interface StatusCount {
+        String getStatus();
+
+        long getChunks();
+
+        long getRows();
+    }
+
+    interface OwnerCount {
+        String getOwner();
+
+        long getChunks();
+
+        long getRows();
+    }
+}
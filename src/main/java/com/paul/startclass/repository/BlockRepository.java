@@ -1,7 +1,41 @@
 package com.paul.startclass.repository;
 
 import com.paul.startclass.models.BIblock;
+import com.paul.startclass.models.BIblockHeader;
+import com.paul.startclass.models.BIblockSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 public interface BlockRepository extends CrudRepository<BIblock, Integer> {
+
+    String QUERY_CACHE_REGION = "b_iblock_queries";
+
+    // Списки и поиск читают проекции: SELECT ID, CODE, NAME, ACTIVE вместо всех колонок сущности.
+    // Результаты лежат в кэше запросов и сбрасываются, когда b_iblock меняется через Hibernate
+    // (сохранение сущности или JPQL update/delete). Изменения в обход Hibernate кэш не видит до TTL
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
+    @Query("select new com.paul.startclass.models.BIblockSummary(b.id, b.code, b.name, b.active) from BIblock b order by b.sort, b.id")
+    List<BIblockSummary> findAllSummaries();
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
+    @Query("select new com.paul.startclass.models.BIblockSummary(b.id, b.code, b.name, b.active) from BIblock b where b.id = :id")
+    Optional<BIblockSummary> findSummaryById(@Param("id") int id);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
+    @Query("select new com.paul.startclass.models.BIblockSummary(b.id, b.code, b.name, b.active) from BIblock b where b.code = :code")
+    List<BIblockSummary> findSummariesByCode(@Param("code") String code);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)})
+    List<BIblockHeader> findByActiveOrderBySortAsc(String active);
 }
@@ -1,7 +1,95 @@
 package com.paul.startclass.repository;
 
 import com.paul.startclass.models.Student;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
 
 public interface StudentRepository extends CrudRepository<Student, Integer> {
+
+    int STREAM_FETCH_SIZE = 1000;
+
+    @Query("select min(s.id) from Student s")
+    Integer findMinId();
+
+    @Query("select max(s.id) from Student s")
+    Integer findMaxId();
+
+    // Потоковое чтение через курсор: в памяти JDBC драйвера только fetch size строк.
+    // Вызывать внутри транзакции и закрывать Stream после использования
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("select s from Student s order by s.id")
+    Stream<Student> streamAll();
+
+    // Keyset-пагинация: WHERE ID > lastId ORDER BY ID, без OFFSET
+    Slice<Student> findByIdGreaterThan(int id, Pageable pageable);
+
+    // Страницы по pageSize строк. Если итератор используется внутри транзакции,
+    // сущности страницы управляемые и изменения сохранятся при коммите
+    default Iterator<List<Student>> keysetPages(int pageSize) {
+        return new Iterator<>() {
+            private int lastId = Integer.MIN_VALUE;
+            private List<Student> nextPage;
+            private boolean lastPage;
+
+            @Override
+            public boolean hasNext() {
+                if (nextPage == null && !lastPage) {
+                    Slice<Student> slice = findByIdGreaterThan(lastId, PageRequest.of(0, pageSize, Sort.by("id")));
+                    lastPage = !slice.hasNext();
+                    nextPage = slice.hasContent() ? slice.getContent() : null;
+                    if (nextPage != null) {
+                        lastId = nextPage.get(nextPage.size() - 1).getId();
+                    }
+                }
+                return nextPage != null;
+            }
+
+            @Override
+            public List<Student> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<Student> page = nextPage;
+                nextPage = null;
+                return page;
+            }
+        };
+    }
+
+    List<Student> findByIdBetween(int fromId, int toId);
+
+    // Сколько строк еще нужно менять (имя не подходит под NameTransform.likePattern), NULL не считается
+    long countByNameNotLike(String donePattern);
+
+    // Каждый step-й ID по возрастанию: границы диапазонов с одинаковым количеством строк при любых дырах в ID.
+    // Один проход по индексу на стороне БД, в приложение приходят только границы. Нужны оконные функции (MySQL 8, H2)
+    @Query(value = "select ID from (select ID, row_number() over (order by ID) as RN from sova.students) T where mod(RN, :step) = 0",
+            nativeQuery = true)
+    List<Integer> findSplitPoints(@Param("step") int step);
+
+    // Set-based операции: вся работа выполняется одним UPDATE на стороне БД для диапазона ID.
+    // Строки, которые уже в нужном состоянии, отсекает условие LIKE (см. NameTransform.likePattern)
+    @Modifying
+    @Query("update Student s set s.name = concat(s.name, :suffix) where s.id between :fromId and :toId and s.name not like :done")
+    int appendToNameInRange(@Param("suffix") String suffix, @Param("done") String donePattern,
+                            @Param("fromId") int fromId, @Param("toId") int toId);
+
+    @Modifying
+    @Query("update Student s set s.name = replace(s.name, :suffix, '') where s.id between :fromId and :toId and s.name like :todo")
+    int removeFromNameInRange(@Param("suffix") String suffix, @Param("todo") String todoPattern,
+                              @Param("fromId") int fromId, @Param("toId") int toId);
 }
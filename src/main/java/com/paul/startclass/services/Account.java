@@ -0,0 +1,9 @@
+package com.paul.startclass.services;
+
+import java.util.concurrent.locks.Lock;
+
+// Счет из примеров с deadlock: Bank и SmartBank блокируют сам объект, SuperSmartBank - lock
+public class Account {
+    public int count;
+    public Lock lock;
+}
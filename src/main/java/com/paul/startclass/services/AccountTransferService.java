@@ -0,0 +1,214 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.models.BankAccount;
+import com.paul.startclass.repository.BankAccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// Переводы между счетами в БД без пессимистических блокировок: счета читаются без SELECT ... FOR UPDATE,
+// при записи проверяется VERSION. Если счет за это время изменил другой перевод, транзакция откатывается
+// и перевод повторяется после случайной паузы от 0 до base * 2^(попытка - 1), но не больше max-backoff
+// (экспоненциальная пауза с джиттером). В отличие от SuperSmartBank попыток не больше max-attempts.
+// Метрики: account.transfer.conflicts (по типу), account.transfer.retries, account.transfer.exhausted,
+// account.transfer.attempts - попыток на перевод, account.transfer.duration - по результату
+@Service
+public class AccountTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountTransferService.class);
+
+    static final int INSERT_BATCH_SIZE = 1000;
+    static final long MAX_AMOUNT = 10;
+
+    @Autowired
+    BankAccountRepository bankAccountRepository;
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final Counter retries;
+    private final Counter exhausted;
+    private final DistributionSummary attempts;
+
+    @Autowired
+    public AccountTransferService(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                  @Value("${account-transfer.max-attempts:10}") int maxAttempts,
+                                  @Value("${account-transfer.base-backoff-millis:1}") long baseBackoffMillis,
+                                  @Value("${account-transfer.max-backoff-millis:50}") long maxBackoffMillis) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.retries = Counter.builder("account.transfer.retries")
+                .description("Transfers repeated after a concurrency conflict")
+                .register(meterRegistry);
+        this.exhausted = Counter.builder("account.transfer.exhausted")
+                .description("Transfers given up after max-attempts conflicts")
+                .register(meterRegistry);
+        this.attempts = DistributionSummary.builder("account.transfer.attempts")
+                .description("Attempts needed for one transfer")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    // false, если на счете не хватает денег. После max-attempts конфликтов подряд пробрасывает последний
+    public boolean transfer(int fromId, int toId, long amount) throws InterruptedException {
+        long startTime = System.nanoTime();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                boolean done = transactionTemplate.execute(status -> move(fromId, toId, amount));
+                attempts.record(attempt);
+                duration(done ? "completed" : "rejected").record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                return done;
+            } catch (ConcurrencyFailureException e) {
+                conflicts(e).increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    attempts.record(attempt);
+                    duration("exhausted").record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                    throw e;
+                }
+                retries.increment();
+                Thread.sleep(backoffMillis(attempt));
+            }
+        }
+    }
+
+    // Full jitter: пауза равномерно от 0 до потолка, чтобы столкнувшиеся переводы не повторялись одновременно
+    long backoffMillis(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    // Пересоздает счета 0..accounts-1 с одинаковым балансом
+    public void resetAccounts(int accounts, long initialBalance) {
+        transactionTemplate.executeWithoutResult(status -> bankAccountRepository.deleteAllAccounts());
+        for (int from = 0; from < accounts; from += INSERT_BATCH_SIZE) {
+            List<BankAccount> batch = IntStream.range(from, Math.min(accounts, from + INSERT_BATCH_SIZE))
+                    .mapToObj(id -> new BankAccount(id, initialBalance))
+                    .toList();
+            transactionTemplate.executeWithoutResult(status -> bankAccountRepository.saveAll(batch));
+        }
+    }
+
+    // Нагрузка с перекосом: с вероятностью skew счет берется из первых hotAccounts, иначе из всех.
+    // Чем больше skew и меньше hotAccounts, тем чаще переводы сталкиваются на одних и тех же строках
+    public BatchResult transferRandom(int accounts, long initialBalance, long transfers, int threads,
+                                      int hotAccounts, double skew) throws InterruptedException {
+        // до сброса счетов: с одним счетом перевод выбрать не из чего, а пул с нулем потоков не создается
+        if (accounts < 2 || threads < 1 || hotAccounts < 1 || transfers < 0 || !(skew >= 0 && skew <= 1)) {
+            throw new IllegalArgumentException(String.format("Invalid transfer load: accounts = %d (>= 2), threads = %d (>= 1), "
+                    + "hot = %d (>= 1), transfers = %d (>= 0), skew = %s (0..1)", accounts, threads, hotAccounts, transfers, skew));
+        }
+        resetAccounts(accounts, initialBalance);
+        double conflictsBefore = conflictCount();
+        double retriesBefore = retries.count();
+
+        long startTime = System.nanoTime();
+        List<Future<long[]>> futures = new ArrayList<>();
+        try (ExecutorService executorService = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("transfer-"))) {
+            for (int i = 0; i < threads; i++) {
+                long share = transfers / threads + (i < transfers % threads ? 1 : 0);
+                futures.add(executorService.submit(() -> transferRandom(share, accounts, hotAccounts, skew)));
+            }
+        }
+        long completed = 0, rejected = 0, failed = 0;
+        for (Future<long[]> future : futures) {
+            try {
+                long[] counts = future.get();
+                completed += counts[0];
+                rejected += counts[1];
+                failed += counts[2];
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Transfer worker failed", e.getCause());
+            }
+        }
+        long elapsed = System.nanoTime() - startTime;
+
+        long total = bankAccountRepository.totalBalance();
+        if (total != initialBalance * accounts) {
+            throw new IllegalStateException("Money is not conserved: expected " + initialBalance * accounts + ", actual " + total);
+        }
+        BatchResult result = new BatchResult(String.format("account-transfers (skew = %.2f, hot = %d, threads = %d)",
+                skew, hotAccounts, threads), completed, elapsed);
+        log.info("{}, rejected = {}, exhausted = {}, conflicts = {}, retries = {}", result, rejected, failed,
+                (long) (conflictCount() - conflictsBefore), (long) (retries.count() - retriesBefore));
+        return result;
+    }
+
+    // completed, rejected, exhausted
+    private long[] transferRandom(long transfers, int accounts, int hotAccounts, double skew) throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] counts = new long[3];
+        for (long i = 0; i < transfers; i++) {
+            int pool = random.nextDouble() < skew ? Math.min(hotAccounts, accounts) : accounts;
+            int fromId = random.nextInt(pool);
+            // получатель - любой другой счет того же пула, без повторных бросков; в пуле из одного
+            // горячего счета другого нет, тогда получатель из всех счетов
+            int toPool = pool < 2 ? accounts : pool;
+            int toId = (fromId + 1 + random.nextInt(toPool - 1)) % toPool;
+            try {
+                counts[transfer(fromId, toId, 1 + random.nextLong(MAX_AMOUNT)) ? 0 : 1]++;
+            } catch (ConcurrencyFailureException e) {
+                counts[2]++;
+            }
+        }
+        return counts;
+    }
+
+    // Изменения обоих счетов уходят одним flush при коммите, UPDATE упорядочены по ID (order_updates)
+    private boolean move(int fromId, int toId, long amount) {
+        BankAccount from = bankAccountRepository.findById(fromId)
+                .orElseThrow(() -> new IllegalArgumentException("No such account: " + fromId));
+        BankAccount to = bankAccountRepository.findById(toId)
+                .orElseThrow(() -> new IllegalArgumentException("No such account: " + toId));
+        if (from.getBalance() < amount) {
+            return false;
+        }
+        from.setBalance(from.getBalance() - amount);
+        to.setBalance(to.getBalance() + amount);
+        return true;
+    }
+
+    private Counter conflicts(ConcurrencyFailureException e) {
+        return Counter.builder("account.transfer.conflicts")
+                .description("Transfer attempts rolled back because of a concurrent update")
+                .tag("type", e instanceof OptimisticLockingFailureException ? "optimistic" : "lock")
+                .register(meterRegistry);
+    }
+
+    private double conflictCount() {
+        return meterRegistry.find("account.transfer.conflicts").counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    private Timer duration(String outcome) {
+        return Timer.builder("account.transfer.duration")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
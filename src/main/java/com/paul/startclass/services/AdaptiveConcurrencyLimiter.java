@@ -0,0 +1,134 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.services.BatchResult.ChunkOutcome;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Допуск чанков к БД с адаптивным лимитом (AIMD) вместо фиксированного Semaphore(8) (он остался как база
+// для сравнения в режиме SEMAPHORE, см. ChunkAdmission.fixed).
+// Каждый завершенный чанк сообщает время записи в пересчете на одну строку:
+// - ошибка или время заметно выше обычного (tolerance * скользящее среднее) - лимит умножается на backoffRatio;
+// - иначе, если занято хотя бы полкапасити, лимит растет на 1;
+// - прерванный отменой, сроком или ошибкой соседа чанк лимит не меняет: иначе одна отмененная задача
+//   уменьшала бы его на каждый идущий чанк, и следующая начинала бы с заниженного лимита.
+// Так лимит поднимается, пока БД справляется, и быстро падает, когда она начинает тормозить.
+// Потолок - не больше соединений для чанков (ConnectionPoolScheduler), и лимит не растет, пока кто-то ждет пул
+@Component
+public class AdaptiveConcurrencyLimiter implements ChunkAdmission {
+
+    static final int WARMUP_SAMPLES = 10;
+    static final double BASELINE_SMOOTHING = 0.05;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final ConnectionPoolScheduler poolScheduler;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+    private final Counter drops;
+
+    private double limit;
+    private int inFlight;
+    private long samples;
+    private double baselineNanosPerRow;
+
+    public AdaptiveConcurrencyLimiter(MeterRegistry meterRegistry, ConnectionPoolScheduler poolScheduler,
+                                      @Value("${batch.limiter.initial-limit:8}") int initialLimit,
+                                      @Value("${batch.limiter.min-limit:1}") int minLimit,
+                                      @Value("${batch.limiter.max-limit:32}") int maxLimit,
+                                      @Value("${batch.limiter.latency-tolerance:2.0}") double latencyTolerance,
+                                      @Value("${batch.limiter.backoff-ratio:0.9}") double backoffRatio) {
+        this.poolScheduler = poolScheduler;
+        this.minLimit = Math.min(minLimit, poolScheduler.parallelism());
+        this.maxLimit = Math.min(maxLimit, poolScheduler.parallelism());
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+
+        Gauge.builder("batch.limiter.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit for batch chunks")
+                .register(meterRegistry);
+        Gauge.builder("batch.limiter.in_flight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .register(meterRegistry);
+        this.drops = Counter.builder("batch.limiter.drops")
+                .description("Times the limit was decreased because of errors or slow chunks")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public long admit() {
+        long startTime = System.nanoTime();
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                permitReleased.await();
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for admission");
+        } finally {
+            lock.unlock();
+        }
+        return System.nanoTime() - startTime;
+    }
+
+    @Override
+    public void release(int rows, long elapsedNanos, ChunkOutcome.Status status) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (status == ChunkOutcome.Status.FAILED) {
+                decrease();
+            } else if (status == ChunkOutcome.Status.COMPLETED && rows > 0) {
+                // чанк, в котором нечего было писать (все строки уже в нужном состоянии), не дает
+                // времени на строку и лимит не меняет
+                double nanosPerRow = (double) elapsedNanos / rows;
+                boolean slow = samples >= WARMUP_SAMPLES && nanosPerRow > baselineNanosPerRow * latencyTolerance;
+                baselineNanosPerRow = samples == 0 ? nanosPerRow
+                        : baselineNanosPerRow + BASELINE_SMOOTHING * (nanosPerRow - baselineNanosPerRow);
+                samples++;
+                if (slow) {
+                    decrease();
+                } else if ((inFlight + 1) * 2 >= limit && !poolScheduler.poolSaturated()) {
+                    limit = Math.min(maxLimit, limit + 1);
+                }
+            }
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+        drops.increment();
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.paul.startclass.services;
+
+// Перевод с вложенными synchronized в порядке "откуда -> куда": два встречных перевода
+// между одними и теми же счетами блокируют друг друга (deadlock)
+public class Bank {
+
+    // Пауза внутри первой блокировки, чтобы deadlock воспроизводился наверняка
+    private final long pauseMillis;
+    private final boolean verbose;
+
+    public Bank() {
+        this(100, true);
+    }
+
+    public Bank(long pauseMillis, boolean verbose) {
+        this.pauseMillis = pauseMillis;
+        this.verbose = verbose;
+    }
+
+    public void transferMoney(Account fromAccount, Account toAccount, int amount) throws InterruptedException {
+        synchronized (fromAccount) {
+            if (pauseMillis > 0) {
+                Thread.sleep(pauseMillis);
+            }
+            synchronized (toAccount) {
+                fromAccount.count = fromAccount.count - amount;
+                toAccount.count = toAccount.count + amount;
+                if (verbose) {
+                    System.out.println("Operation's completed");
+                }
+            }
+        }
+    }
+}
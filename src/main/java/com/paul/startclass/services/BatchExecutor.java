@@ -0,0 +1,66 @@
+package com.paul.startclass.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Общий пул для пакетных операций вместо нового пула на каждый HTTP запрос.
+// Потоков и мест в очереди фиксированное количество, при переполнении очереди чанк выполняет
+// вызывающий поток (CallerRunsPolicy), это естественным образом притормаживает читателя.
+// Потоков не больше, чем соединений для чанков (ConnectionPoolScheduler), threads = 0 - ровно столько.
+// Намеренно не реализует Executor: иначе Spring Boot не создаст свой applicationTaskExecutor для @Async
+@Component
+public class BatchExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchExecutor.class);
+
+    private final ThreadPoolExecutor threadPoolExecutor;
+    private final long awaitTerminationSeconds;
+
+    public BatchExecutor(MeterRegistry meterRegistry, ConnectionPoolScheduler poolScheduler,
+                         @Value("${batch.executor.threads:8}") int threads,
+                         @Value("${batch.executor.queue-capacity:64}") int queueCapacity,
+                         @Value("${batch.executor.await-termination-seconds:30}") long awaitTerminationSeconds) {
+        int workers = poolScheduler.workers(threads);
+        this.threadPoolExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("batch-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.awaitTerminationSeconds = awaitTerminationSeconds;
+        // executor.active, executor.queued, executor.pool.size и т.д. с тегом name=batch
+        new ExecutorServiceMetrics(threadPoolExecutor, "batch", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    public Executor executor() {
+        return threadPoolExecutor;
+    }
+
+    public int activeCount() {
+        return threadPoolExecutor.getActiveCount();
+    }
+
+    public int queueSize() {
+        return threadPoolExecutor.getQueue().size();
+    }
+
+    // При закрытии контекста новые задачи не принимаем, а начатые чанки даем дописать
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        threadPoolExecutor.shutdown();
+        if (!threadPoolExecutor.awaitTermination(awaitTerminationSeconds, TimeUnit.SECONDS)) {
+            log.warn("Batch executor did not finish in {} seconds, interrupting", awaitTerminationSeconds);
+            threadPoolExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.services.BatchResult.ChunkOutcome;
+
+// Операция из чанков не выполнена целиком: первая ошибка чанка, истекший срок или отмена.
+// Причина - первая ошибка, result - частичный итог: сколько строк успели записать закоммиченные чанки
+// и результат каждого чанка
+public class BatchFailedException extends RuntimeException {
+
+    private final BatchResult result;
+
+    public BatchFailedException(BatchResult result, Throwable cause) {
+        super(String.format("%s failed after %d ms: completed chunks = %d, failed = %d, cancelled = %d, rows written = %d; %s",
+                result.operation(), result.elapsedMillis(), result.chunks(ChunkOutcome.Status.COMPLETED),
+                result.chunks(ChunkOutcome.Status.FAILED), result.chunks(ChunkOutcome.Status.CANCELLED),
+                result.rowsAffected(), cause), cause);
+        this.result = result;
+    }
+
+    public BatchResult getResult() {
+        return result;
+    }
+}
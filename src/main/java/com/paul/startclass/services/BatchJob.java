@@ -0,0 +1,167 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.services.BatchProcessingEngine.ChunkListener;
+import com.paul.startclass.services.BatchResult.ChunkOutcome;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Фоновая задача над таблицей students: прогресс по чанкам и отмена.
+// Отмена помечает задачу, новые чанки не стартуют, а потоки уже запущенных чанков прерываются
+public class BatchJob implements ChunkListener {
+
+    public enum State {
+        RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final String id;
+    private final ExecutionMode type;
+    private final long totalRows;
+    private final int totalChunks;
+    private final long startTime = System.nanoTime();
+
+    private final AtomicInteger chunksDone = new AtomicInteger();
+    private final AtomicLong rowsDone = new AtomicLong();
+    private final Set<Thread> runningChunks = new HashSet<>();
+    private final Set<Thread> interruptedChunks = new HashSet<>();
+
+    private volatile boolean cancelled;
+    private volatile State state = State.RUNNING;
+    private volatile long finishTime;
+    private volatile BatchResult result;
+    private volatile String error;
+
+    public BatchJob(String id, ExecutionMode type, long totalRows, int chunkSize) {
+        this.id = id;
+        this.type = type;
+        this.totalRows = totalRows;
+        this.totalChunks = (int) ((totalRows + chunkSize - 1) / chunkSize);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized void chunkStarted() {
+        runningChunks.add(Thread.currentThread());
+    }
+
+    @Override
+    public void chunkCompleted(int rows, long elapsedNanos) {
+        chunksDone.incrementAndGet();
+        rowsDone.addAndGet(rows);
+    }
+
+    // Поток снимается с учета под тем же монитором, что и cancel(), и сбрасывает флаг прерывания от cancel(),
+    // поэтому прерывание не достанется следующей задаче этого потока из пула. Чужое прерывание остается:
+    // чанк может идти в потоке вызывающего (CallerRunsPolicy)
+    @Override
+    public synchronized void chunkStopped() {
+        runningChunks.remove(Thread.currentThread());
+        if (interruptedChunks.remove(Thread.currentThread())) {
+            Thread.interrupted();
+        }
+    }
+
+    public synchronized boolean cancel() {
+        if (state != State.RUNNING) {
+            return false;
+        }
+        cancelled = true;
+        runningChunks.forEach(Thread::interrupt);
+        interruptedChunks.addAll(runningChunks);
+        return true;
+    }
+
+    void complete(BatchResult result) {
+        this.result = result;
+        finish(State.COMPLETED);
+    }
+
+    // Частичный результат (сколько строк записали закоммиченные чанки, результат каждого чанка) тоже сохраняется
+    void fail(Throwable error) {
+        if (error instanceof BatchFailedException batchFailedException) {
+            this.result = batchFailedException.getResult();
+        }
+        this.error = error.toString();
+        finish(cancelled ? State.CANCELLED : State.FAILED);
+    }
+
+    private void finish(State state) {
+        this.finishTime = System.nanoTime();
+        this.state = state;
+    }
+
+    // System.nanoTime() завершения, для порядка завершенных задач
+    long finishNanos() {
+        return finishTime;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ExecutionMode getType() {
+        return type;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getChunksDone() {
+        return chunksDone.get();
+    }
+
+    // Оценка по количеству строк: Fork/Join делит диапазон ID, поэтому листьев может оказаться больше
+    public int getTotalChunks() {
+        return Math.max(totalChunks, getChunksDone());
+    }
+
+    public long getRowsDone() {
+        return rowsDone.get();
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis((state == State.RUNNING ? System.nanoTime() : finishTime) - startTime);
+    }
+
+    public double getRowsPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : getRowsDone() * 1000.0 / elapsed;
+    }
+
+    // Оценка по текущей скорости, null пока скорость неизвестна или задача уже завершена
+    public Long getEtaSeconds() {
+        double rowsPerSecond = getRowsPerSecond();
+        if (state != State.RUNNING || rowsPerSecond == 0) {
+            return null;
+        }
+        return Math.round(Math.max(0, totalRows - getRowsDone()) / rowsPerSecond);
+    }
+
+    public String getResult() {
+        return result == null ? null : result.toString();
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    // Чанки, которые упали сами, без отмененных вслед за ними
+    public List<ChunkOutcome> getFailedChunks() {
+        return result == null ? List.of() : result.chunkResults().stream()
+                .filter(outcome -> outcome.status() == ChunkOutcome.Status.FAILED)
+                .toList();
+    }
+}
@@ -0,0 +1,91 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.repository.StudentRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Запуск операций над students в фоне. Каждой задаче свой координирующий поток,
+// который читает таблицу и раздает чанки выбранному режиму выполнения
+@Service
+public class BatchJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchJobService.class);
+
+    static final int MAX_FINISHED_JOBS = 100;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    StudentBatchService studentBatchService;
+
+    private final Map<String, BatchJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService coordinators = Executors.newCachedThreadPool(new CustomizableThreadFactory("batch-job-"));
+
+    public BatchJob startAddPrefix(ExecutionMode type) {
+        evictFinishedJobs();
+        // rowsDone считает только измененные строки, поэтому и всего - только строки, которым нужен префикс:
+        // повторный запуск не показывает 0% и бесконечный ETA
+        BatchJob job = new BatchJob(UUID.randomUUID().toString(), type,
+                studentRepository.countByNameNotLike(NameTransform.ADD_PREFIX.likePattern()),
+                studentBatchService.chunkSize(type));
+        jobs.put(job.getId(), job);
+        coordinators.execute(() -> {
+            try {
+                job.complete(studentBatchService.addPrefix(type, job));
+            } catch (Throwable e) {
+                // и Error тоже: иначе задача навсегда осталась бы RUNNING, а такие не вытесняются
+                job.fail(e);
+                if (e instanceof Error error) {
+                    throw error;
+                }
+            } finally {
+                log.info("Job {} {}, rows = {}", job.getId(), job.getState(), job.getRowsDone());
+            }
+        });
+        return job;
+    }
+
+    public Optional<BatchJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public Collection<BatchJob> findAll() {
+        return jobs.values();
+    }
+
+    public Optional<BatchJob> cancel(String id) {
+        Optional<BatchJob> job = find(id);
+        job.ifPresent(BatchJob::cancel);
+        return job;
+    }
+
+    // Порядок значений ConcurrentHashMap произвольный, поэтому завершенные задачи сортируются:
+    // остаются MAX_FINISHED_JOBS последних
+    private void evictFinishedJobs() {
+        jobs.values().stream()
+                .filter(job -> job.getState() != BatchJob.State.RUNNING)
+                .sorted(Comparator.comparingLong(BatchJob::finishNanos).reversed())
+                .skip(MAX_FINISHED_JOBS)
+                .forEach(job -> jobs.remove(job.getId()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobs.values().forEach(BatchJob::cancel);
+        coordinators.shutdown();
+    }
+}
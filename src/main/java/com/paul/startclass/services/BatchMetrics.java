@@ -0,0 +1,89 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.services.BatchProcessingEngine.ChunkListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// Метрики пакетных операций, все с тегом strategy (single, pushdown, bulk, thread, runnable, pool, ...):
+// batch.chunk.duration - время чанка с перцентилями, batch.rows.processed - записанные строки,
+// batch.rows.scanned - просмотренные строки (больше записанных, если часть строк уже в нужном состоянии),
+// batch.operation.duration - время операции целиком, batch.limiter.wait - ожидание допуска лимитером,
+// batch.semaphore.wait - ожидание свободного соединения у виртуальных потоков.
+// Текущий лимит параллельности - batch.limiter.limit (см. AdaptiveConcurrencyLimiter), его потолок по пулу
+// соединений - batch.pool.parallelism (см. ConnectionPoolScheduler).
+// Метрики пулов потоков регистрируют сами пулы, метрики Hikari (hikaricp.connections.*) дает Spring Boot
+@Component
+public class BatchMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public BatchMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public ChunkListener chunkListener(String strategy) {
+        Timer chunkTimer = chunkTimer(strategy);
+        Counter rows = rowsCounter(strategy);
+        Timer admissionWait = Timer.builder("batch.limiter.wait")
+                .description("Time a chunk waited for admission by the adaptive limiter")
+                .tag("strategy", strategy)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        return new ChunkListener() {
+            @Override
+            public void chunkAdmitted(long waitNanos) {
+                admissionWait.record(waitNanos, TimeUnit.NANOSECONDS);
+            }
+
+            @Override
+            public void chunkCompleted(int chunkRows, long elapsedNanos) {
+                chunkTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+                rows.increment(chunkRows);
+            }
+        };
+    }
+
+    public void recordChunk(String strategy, int rows, long elapsedNanos) {
+        chunkTimer(strategy).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        rowsCounter(strategy).increment(rows);
+    }
+
+    public void recordOperation(String strategy, BatchResult result) {
+        Timer.builder("batch.operation.duration")
+                .description("Wall time of a whole batch operation")
+                .tag("strategy", strategy)
+                .register(meterRegistry)
+                .record(result.elapsedNanos(), TimeUnit.NANOSECONDS);
+        Counter.builder("batch.rows.scanned")
+                .description("Rows examined by a batch operation, including rows that needed no change")
+                .tag("strategy", strategy)
+                .register(meterRegistry)
+                .increment(result.rowsScanned());
+    }
+
+    public Timer semaphoreWait(String strategy) {
+        return Timer.builder("batch.semaphore.wait")
+                .description("Time a chunk waited for a semaphore permit")
+                .tag("strategy", strategy)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private Timer chunkTimer(String strategy) {
+        return Timer.builder("batch.chunk.duration")
+                .description("Time to process and commit one chunk")
+                .tag("strategy", strategy)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    private Counter rowsCounter(String strategy) {
+        return Counter.builder("batch.rows.processed")
+                .tag("strategy", strategy)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,441 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.services.BatchResult.ChunkOutcome;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+import java.util.stream.Stream;
+
+// Общий движок пакетной обработки.
+// Работа делится на чанки за O(n) (subList по индексам или диапазоны ID), каждый чанк
+// выполняется в своей транзакции на переданном executor, результат собирается в один BatchResult.
+// Сколько чанков одновременно пишут в БД, решает AdaptiveConcurrencyLimiter.
+// Чанки одной операции живут в Scope: первая ошибка или истекший срок отменяют остальные чанки,
+// а операция возвращает результат только после завершения всех своих чанков.
+@Service
+public class BatchProcessingEngine<T> {
+
+    private final PlatformTransactionManager transactionManager;
+    private final TransactionTemplate transactionTemplate;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final long deadlineNanos;
+
+    @Autowired
+    public BatchProcessingEngine(PlatformTransactionManager transactionManager,
+                                 AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                 @Value("${batch.job.deadline-seconds:600}") long deadlineSeconds) {
+        this.transactionManager = transactionManager;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.deadlineNanos = TimeUnit.SECONDS.toNanos(deadlineSeconds);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Чанк может выполниться и в вызывающем потоке (CallerRunsPolicy), где уже открыта
+        // транзакция читателя, поэтому у каждого чанка всегда своя новая транзакция
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public BatchResult processByIndex(String operation, List<T> items, int chunkSize,
+                                      Executor executor, ChunkWork<List<T>> work) {
+        return processByIndex(operation, items, chunkSize, executor, work, ChunkListener.NONE);
+    }
+
+    public BatchResult processByIndex(String operation, List<T> items, int chunkSize,
+                                      Executor executor, ChunkWork<List<T>> work, ChunkListener listener) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            chunks.add(items.subList(from, Math.min(from + chunkSize, items.size())));
+        }
+        return process(operation, chunks, executor, work, listener);
+    }
+
+    public BatchResult processByIdRange(String operation, Integer minId, Integer maxId, int rangeSize,
+                                        Executor executor, ChunkWork<IdRange> work) {
+        return processByIdRange(operation, minId, maxId, rangeSize, executor, work, ChunkListener.NONE);
+    }
+
+    public BatchResult processByIdRange(String operation, Integer minId, Integer maxId, int rangeSize,
+                                        Executor executor, ChunkWork<IdRange> work, ChunkListener listener) {
+        List<IdRange> ranges = minId == null ? List.of() : IdRange.split(minId, maxId, rangeSize);
+        return process(operation, ranges, executor, work, listener);
+    }
+
+    // Чанки читаются из потока по мере обработки: одновременно в памяти не больше maxInFlight чанков,
+    // поэтому пиковое потребление памяти зависит от размера чанка, а не от размера таблицы
+    public BatchResult processStream(String operation, Stream<T> items, int chunkSize, int maxInFlight,
+                                     Executor executor, ChunkWork<List<T>> work) {
+        return processStream(operation, items, chunkSize, maxInFlight, executor, work, ChunkListener.NONE);
+    }
+
+    public BatchResult processStream(String operation, Stream<T> items, int chunkSize, int maxInFlight,
+                                     Executor executor, ChunkWork<List<T>> work, ChunkListener listener) {
+        return processStream(operation, items, chunkSize, maxInFlight, executor, work, listener, concurrencyLimiter);
+    }
+
+    // admission - кто допускает чанки к БД вместо общего адаптивного лимитера
+    public BatchResult processStream(String operation, Stream<T> items, int chunkSize, int maxInFlight,
+                                     Executor executor, ChunkWork<List<T>> work, ChunkListener listener,
+                                     ChunkAdmission admission) {
+        Scope scope = openScope(listener, admission);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        // после ошибки чанка или истечения срока таблица дальше не читается
+        Iterator<T> iterator = items.iterator();
+        while (iterator.hasNext() && scope.active()) {
+            List<T> chunk = new ArrayList<>(chunkSize);
+            while (iterator.hasNext() && chunk.size() < chunkSize) {
+                chunk.add(iterator.next());
+            }
+            if (!scope.acquire(inFlight)) {
+                break;
+            }
+            scope.fork(chunk, work, executor).whenComplete((rows, error) -> inFlight.release());
+        }
+        return scope.join(operation);
+    }
+
+    public <C> BatchResult process(String operation, List<C> chunks, Executor executor, ChunkWork<C> work) {
+        return process(operation, chunks, executor, work, ChunkListener.NONE);
+    }
+
+    public <C> BatchResult process(String operation, List<C> chunks, Executor executor, ChunkWork<C> work,
+                                   ChunkListener listener) {
+        Scope scope = openScope(listener);
+        for (C chunk : chunks) {
+            scope.fork(chunk, work, executor);
+        }
+        return scope.join(operation);
+    }
+
+    // Область для операций, которые сами раздают чанки (Fork/Join, конвейер)
+    public Scope openScope(ChunkListener listener) {
+        return openScope(listener, concurrencyLimiter);
+    }
+
+    public Scope openScope(ChunkListener listener, ChunkAdmission admission) {
+        return new Scope(listener, admission);
+    }
+
+    // Один чанк: допуск через адаптивный лимитер (или admission области), работа в отдельной транзакции,
+    // уведомления listener.
+    // Отмена проверяется после chunkStarted: поток уже учтен, и отмена, пришедшая позже проверки, его прервет
+    public <C> int runChunk(C chunk, ChunkWork<C> work, ChunkListener listener) {
+        return runChunk(chunk, work, listener, () -> TransactionDefinition.TIMEOUT_DEFAULT, concurrencyLimiter);
+    }
+
+    // timeoutSeconds спрашивается после допуска, в момент открытия транзакции
+    private <C> int runChunk(C chunk, ChunkWork<C> work, ChunkListener listener, IntSupplier timeoutSeconds,
+                             ChunkAdmission admission) {
+        listener.chunkStarted();
+        try {
+            if (listener.isCancelled()) {
+                throw new CancellationException("Batch was cancelled before the chunk started");
+            }
+            listener.chunkAdmitted(admission.admit());
+            long chunkStart = System.nanoTime();
+            int rows = 0;
+            ChunkOutcome.Status status = ChunkOutcome.Status.FAILED;
+            try {
+                rows = transaction(timeoutSeconds.getAsInt()).execute(transactionStatus -> work.process(chunk));
+                status = ChunkOutcome.Status.COMPLETED;
+            } catch (RuntimeException | Error e) {
+                // прерывание из-за отмены, срока или ошибки другого чанка - не признак перегрузки БД
+                if (e instanceof CancellationException || listener.isCancelled() || Thread.currentThread().isInterrupted()) {
+                    status = ChunkOutcome.Status.CANCELLED;
+                }
+                throw e;
+            } finally {
+                long elapsed = System.nanoTime() - chunkStart;
+                admission.release(rows, elapsed, status);
+                if (status == ChunkOutcome.Status.COMPLETED) {
+                    listener.chunkCompleted(rows, elapsed);
+                }
+            }
+            return rows;
+        } finally {
+            listener.chunkStopped();
+        }
+    }
+
+    private TransactionTemplate transaction(int timeoutSeconds) {
+        if (timeoutSeconds == TransactionDefinition.TIMEOUT_DEFAULT) {
+            return transactionTemplate;
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager, transactionTemplate);
+        transaction.setTimeout(timeoutSeconds);
+        return transaction;
+    }
+
+    // Область одной операции (structured concurrency на CompletableFuture): все чанки операции запускаются
+    // через нее, и ни один не переживает join().
+    // - первая ошибка чанка отменяет остальные: новые чанки не стартуют, потоки идущих чанков прерываются
+    //   (их транзакции откатываются), в listener isCancelled() становится true;
+    // - у операции есть срок batch.job.deadline-seconds, по его истечении то же самое. JDBC драйверы (H2, MySQL)
+    //   не реагируют на прерывание, поэтому таймаут транзакции чанка - время до срока: драйвер сам отменяет
+    //   запрос (setQueryTimeout), и join() не ждет зависший UPDATE дольше срока;
+    // - join() ждет все чанки и собирает один BatchResult с результатом каждого чанка,
+    //   если операция не выполнена целиком, бросает BatchFailedException с этим же частичным результатом
+    public class Scope implements ChunkListener {
+        private final ChunkListener listener;
+        private final ChunkAdmission admission;
+        private final long startTime = System.nanoTime();
+        private final long deadline = startTime + deadlineNanos;
+        private final AtomicInteger nextIndex = new AtomicInteger();
+        private final Queue<ChunkOutcome> outcomes = new ConcurrentLinkedQueue<>();
+        private final List<CompletableFuture<?>> tasks = new CopyOnWriteArrayList<>();
+        private final List<Runnable> abortHooks = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final CompletableFuture<Void> aborted = new CompletableFuture<>();
+        private final Set<Thread> runningChunks = new HashSet<>();
+        // потоки, прерванные самой областью: только у них флаг сбрасывается после чанка
+        private final Set<Thread> interruptedChunks = new HashSet<>();
+
+        Scope(ChunkListener listener, ChunkAdmission admission) {
+            this.listener = listener.and(this);
+            this.admission = admission;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return failure.get() != null || System.nanoTime() - deadline > 0;
+        }
+
+        @Override
+        public synchronized void chunkStarted() {
+            runningChunks.add(Thread.currentThread());
+        }
+
+        // Прерывание от abort() не должно достаться следующей задаче этого потока. Чанк может идти и в вызывающем
+        // потоке (CallerRunsPolicy, лист Fork/Join, писатель конвейера), поэтому чужое прерывание не сбрасывается
+        @Override
+        public synchronized void chunkStopped() {
+            runningChunks.remove(Thread.currentThread());
+            if (interruptedChunks.remove(Thread.currentThread())) {
+                Thread.interrupted();
+            }
+        }
+
+        // Чанк в executor, future завершается нормально и при ошибке чанка: ошибку разбирает join()
+        public <C> CompletableFuture<Integer> fork(C chunk, ChunkWork<C> work, Executor executor) {
+            int index = nextIndex.getAndIncrement();
+            return track(CompletableFuture.supplyAsync(() -> call(index, chunk, work), executor));
+        }
+
+        // Чанк в текущем потоке (лист Fork/Join, писатель конвейера). Не бросает исключений:
+        // при ошибке возвращает 0, а сама ошибка отменяет область
+        public <C> int call(C chunk, ChunkWork<C> work) {
+            return call(nextIndex.getAndIncrement(), chunk, work);
+        }
+
+        // Задача, которая сама запускает чанки через call(): join() ждет и ее, ошибка задачи отменяет область
+        public <R> CompletableFuture<R> track(CompletableFuture<R> task) {
+            tasks.add(task);
+            task.whenComplete((result, error) -> {
+                if (error != null) {
+                    abort(error instanceof CompletionException ? error.getCause() : error);
+                }
+            });
+            return task;
+        }
+
+        // Что еще сделать при отмене, например прервать потоки стадий конвейера
+        public void onAbort(Runnable hook) {
+            abortHooks.add(hook);
+            if (failure.get() != null) {
+                hook.run();
+            }
+        }
+
+        // Для циклов, которые сами раздают чанки: false - пора остановиться. Истекший срок и отмена задачи
+        // здесь же отменяют область, чтобы join() сообщил причину, а не вернул частичный результат как полный
+        public boolean active() {
+            if (System.nanoTime() - deadline > 0) {
+                abort(deadlineExceeded());
+            } else if (listener.isCancelled()) {
+                abort(new CancellationException("Batch was cancelled"));
+            }
+            return failure.get() == null;
+        }
+
+        // Ждет место для следующего чанка не дольше срока операции. false - область отменена
+        public boolean acquire(Semaphore permits) {
+            try {
+                if (permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    return true;
+                }
+                abort(deadlineExceeded());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort(new CancellationException("Interrupted while waiting for a chunk slot"));
+            }
+            return false;
+        }
+
+        public void abort(Throwable cause) {
+            if (!failure.compareAndSet(null, cause)) {
+                return;
+            }
+            synchronized (this) {
+                runningChunks.forEach(Thread::interrupt);
+                interruptedChunks.addAll(runningChunks);
+            }
+            abortHooks.forEach(Runnable::run);
+            aborted.completeExceptionally(cause);
+        }
+
+        private <C> int call(int index, C chunk, ChunkWork<C> work) {
+            long chunkStart = System.nanoTime();
+            try {
+                int rows = runChunk(chunk, work, listener, this::remainingSeconds, admission);
+                outcomes.add(new ChunkOutcome(index, describe(chunk), ChunkOutcome.Status.COMPLETED, rows,
+                        System.nanoTime() - chunkStart, null));
+                return rows;
+            } catch (RuntimeException | Error e) {
+                // ошибка после отмены области - ее следствие (прерывание, отказ в старте), а не причина
+                boolean first = failure.get() == null;
+                boolean expired = System.nanoTime() - deadline > 0;
+                abort(expired ? deadlineExceeded() : e);
+                ChunkOutcome.Status status = first && !expired && !(e instanceof CancellationException)
+                        ? ChunkOutcome.Status.FAILED : ChunkOutcome.Status.CANCELLED;
+                outcomes.add(new ChunkOutcome(index, describe(chunk), status, 0, System.nanoTime() - chunkStart, e.toString()));
+                return 0;
+            }
+        }
+
+        public BatchResult join(String operation) {
+            CompletableFuture<Void> all = CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new));
+            try {
+                CompletableFuture.anyOf(all, aborted).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                abort(deadlineExceeded());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                abort(new CancellationException("Interrupted while waiting for chunks"));
+            } catch (ExecutionException e) {
+                // область уже отменена, причина в failure
+            }
+            // отмененные чанки завершаются быстро (прерывание, таймаут запроса по сроку),
+            // но и их транзакции должны закончиться до возврата
+            all.handle((result, error) -> null).join();
+
+            List<ChunkOutcome> results = outcomes.stream().sorted(Comparator.comparingInt(ChunkOutcome::index)).toList();
+            long rows = 0, chunkNanos = 0, maxChunkNanos = 0;
+            for (ChunkOutcome outcome : results) {
+                if (outcome.status() == ChunkOutcome.Status.COMPLETED) {
+                    rows += outcome.rows();
+                    chunkNanos += outcome.elapsedNanos();
+                    maxChunkNanos = Math.max(maxChunkNanos, outcome.elapsedNanos());
+                }
+            }
+            BatchResult result = new BatchResult(operation, rows, System.nanoTime() - startTime,
+                    results.size(), chunkNanos, maxChunkNanos, rows, results);
+            Throwable error = failure.get();
+            if (error != null) {
+                throw new BatchFailedException(result, error);
+            }
+            return result;
+        }
+
+        // Округление вверх: таймаут 0 в Spring означает "без таймаута", а истекший срок чанк не пропустит
+        // еще до транзакции (isCancelled)
+        private int remainingSeconds() {
+            long remaining = Math.max(1, deadline - System.nanoTime());
+            return (int) Math.min(Integer.MAX_VALUE, (remaining + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        }
+
+        private TimeoutException deadlineExceeded() {
+            return new TimeoutException("Deadline of " + TimeUnit.NANOSECONDS.toSeconds(deadlineNanos) + " s exceeded");
+        }
+
+        private String describe(Object chunk) {
+            return chunk instanceof Collection<?> items ? items.size() + " items" : String.valueOf(chunk);
+        }
+    }
+
+    // Наблюдатель за чанками: прогресс задачи и отмена.
+    // chunkStarted/chunkStopped вызываются в потоке чанка, chunkAdmitted - после допуска лимитером,
+    // chunkCompleted - только при успешном коммите
+    public interface ChunkListener {
+        ChunkListener NONE = new ChunkListener() {
+        };
+
+        default boolean isCancelled() {
+            return false;
+        }
+
+        default void chunkStarted() {
+        }
+
+        default void chunkAdmitted(long waitNanos) {
+        }
+
+        default void chunkCompleted(int rows, long elapsedNanos) {
+        }
+
+        default void chunkStopped() {
+        }
+
+        default ChunkListener and(ChunkListener other) {
+            ChunkListener first = this;
+            return new ChunkListener() {
+                @Override
+                public boolean isCancelled() {
+                    return first.isCancelled() || other.isCancelled();
+                }
+
+                @Override
+                public void chunkStarted() {
+                    first.chunkStarted();
+                    other.chunkStarted();
+                }
+
+                @Override
+                public void chunkAdmitted(long waitNanos) {
+                    first.chunkAdmitted(waitNanos);
+                    other.chunkAdmitted(waitNanos);
+                }
+
+                @Override
+                public void chunkCompleted(int rows, long elapsedNanos) {
+                    first.chunkCompleted(rows, elapsedNanos);
+                    other.chunkCompleted(rows, elapsedNanos);
+                }
+
+                @Override
+                public void chunkStopped() {
+                    first.chunkStopped();
+                    other.chunkStopped();
+                }
+            };
+        }
+    }
+
+    // Обработка одного чанка, возвращает количество затронутых строк
+    @FunctionalInterface
+    public interface ChunkWork<C> {
+        int process(C chunk);
+    }
+}
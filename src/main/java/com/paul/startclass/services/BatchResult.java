@@ -0,0 +1,77 @@
+package com.paul.startclass.services;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Итог пакетной операции: сколько строк записано и за какое время.
+// Для операций из чанков дополнительно количество чанков, их суммарное и максимальное время
+// и результат каждого чанка (chunkResults, есть у операций через BatchProcessingEngine.Scope).
+// rowsScanned - сколько строк операция просмотрела: для идемпотентных изменений (NameTransform)
+// их может быть больше, чем записанных. Если строки отфильтровала БД, совпадает с rowsAffected
+public record BatchResult(String operation, long rowsAffected, long elapsedNanos,
+                          int chunks, long chunkNanos, long maxChunkNanos, long rowsScanned,
+                          List<ChunkOutcome> chunkResults) {
+
+    public BatchResult(String operation, long rowsAffected, long elapsedNanos) {
+        this(operation, rowsAffected, elapsedNanos, 0, 0, 0);
+    }
+
+    public BatchResult(String operation, long rowsAffected, long elapsedNanos,
+                       int chunks, long chunkNanos, long maxChunkNanos) {
+        this(operation, rowsAffected, elapsedNanos, chunks, chunkNanos, maxChunkNanos, rowsAffected, List.of());
+    }
+
+    public BatchResult withRowsScanned(long rowsScanned) {
+        return new BatchResult(operation, rowsAffected, elapsedNanos, chunks, chunkNanos, maxChunkNanos,
+                rowsScanned, chunkResults);
+    }
+
+    public long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsAffected * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    public double avgChunkMillis() {
+        return chunks == 0 ? 0 : chunkNanos / 1_000_000.0 / chunks;
+    }
+
+    public long chunks(ChunkOutcome.Status status) {
+        return chunkResults.stream().filter(outcome -> outcome.status() == status).count();
+    }
+
+    @Override
+    public String toString() {
+        String result = String.format("%s: rows = %d, time = %d ms, %.0f rows/sec",
+                operation, rowsAffected, elapsedMillis(), rowsPerSecond());
+        if (rowsScanned != rowsAffected) {
+            result += ", scanned = " + rowsScanned;
+        }
+        if (chunks > 0) {
+            result += String.format(", chunks = %d, avg chunk = %.1f ms, max chunk = %d ms",
+                    chunks, avgChunkMillis(), TimeUnit.NANOSECONDS.toMillis(maxChunkNanos));
+        }
+        long failed = chunks(ChunkOutcome.Status.FAILED);
+        long cancelled = chunks(ChunkOutcome.Status.CANCELLED);
+        if (failed + cancelled > 0) {
+            result += ", failed chunks = " + failed + ", cancelled chunks = " + cancelled;
+        }
+        return result;
+    }
+
+    // Результат одного чанка: номер в порядке запуска, что это за чанк (диапазон ID или размер списка),
+    // записанные строки, время от старта до конца и ошибка. CANCELLED - чанк не стартовал или был прерван
+    // из-за ошибки другого чанка, срока операции или отмены задачи
+    public record ChunkOutcome(int index, String chunk, Status status, int rows, long elapsedNanos, String error) {
+
+        public enum Status {
+            COMPLETED, FAILED, CANCELLED
+        }
+
+        public long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.models.BIblockSummary;
+import com.paul.startclass.repository.BlockRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Прогрев кэша инфоблоков в фоне вместо findAll() в main: порт открывается сразу,
+// а проекции и сущности BIblock загружаются в кэш второго уровня параллельно с остальным стартом.
+// Пока прогрев идет, health "warmup" - OUT_OF_SERVICE, поэтому /actuator/health/readiness не готов;
+// ошибка прогрева не мешает работе (данные читаются из БД), она только видна в деталях.
+// Время каждой фазы: таймер startup.warmup.phase и шаги warmup.* в /actuator/startup
+@Component("warmupHealthIndicator")
+public class BlockCacheWarmup implements HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockCacheWarmup.class);
+
+    enum State {
+        PENDING, RUNNING, COMPLETED, FAILED, DISABLED
+    }
+
+    @Autowired
+    BlockRepository blockRepository;
+
+    @Autowired
+    ApplicationStartup applicationStartup;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${startup.warmup.enabled:true}")
+    boolean enabled;
+
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+    private volatile State state = State.PENDING;
+    private volatile String error;
+
+    // ApplicationStartedEvent: контекст поднят и порт открыт, ApplicationRunner'ы (заполнение students)
+    // еще не запущены, прогрев идет одновременно с ними
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        if (!enabled) {
+            state = State.DISABLED;
+            return;
+        }
+        state = State.RUNNING;
+        Thread.ofPlatform().name("cache-warmup").daemon().start(this::warmUp);
+    }
+
+    private void warmUp() {
+        long startTime = System.nanoTime();
+        try {
+            List<BIblockSummary> summaries = phase("block-summaries", blockRepository::findAllSummaries);
+            phase("active-blocks", () -> blockRepository.findByActiveOrderBySortAsc("Y"));
+            // findAllById кладет сущности в регион b_iblock, DESCRIPTION остается ленивым
+            phase("block-entities", () -> blockRepository.findAllById(summaries.stream().map(BIblockSummary::id).toList()));
+            state = State.COMPLETED;
+        } catch (RuntimeException e) {
+            error = e.toString();
+            state = State.FAILED;
+        }
+        log.info("Cache warmup {} in {} ms: {}", state.name().toLowerCase(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), phases());
+    }
+
+    private <T> T phase(String name, Supplier<T> work) {
+        StartupStep step = applicationStartup.start("warmup." + name);
+        long startTime = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            long elapsed = System.nanoTime() - startTime;
+            Timer.builder("startup.warmup.phase")
+                    .description("Duration of a cache warmup phase")
+                    .tag("phase", name)
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            synchronized (phaseMillis) {
+                phaseMillis.put(name, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+            step.end();
+        }
+    }
+
+    private Map<String, Long> phases() {
+        synchronized (phaseMillis) {
+            return new LinkedHashMap<>(phaseMillis);
+        }
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = switch (state) {
+            case PENDING, RUNNING -> Health.outOfService();
+            case COMPLETED, FAILED, DISABLED -> Health.up();
+        };
+        health.withDetail("state", state).withDetail("phaseMillis", phases());
+        if (error != null) {
+            health.withDetail("error", error);
+        }
+        return health.build();
+    }
+}
@@ -0,0 +1,136 @@
+package com.paul.startclass.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Ограниченная очередь на кольцевом буфере для нескольких производителей и потребителей без блокировок.
+// У каждой ячейки свой номер последовательности: он говорит, свободна ли ячейка для записи на этом круге
+// или уже заполнена для чтения, поэтому производители и потребители не мешают друг другу и не берут монитор.
+// put/take ждут места или элемента (сначала крутятся, потом уступают процессор и засыпают), это и есть
+// backpressure: быстрая стадия упирается в полную очередь и ждет медленную, вместо wait/notify как в Store
+public class BoundedRingQueue<E> {
+
+    static final int SPIN_TRIES = 100;
+    static final int YIELD_TRIES = 200;
+    static final long PARK_NANOS = 50_000;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    public BoundedRingQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        // размер буфера - степень двойки, чтобы номер ячейки считался маской, а не делением
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.capacity = capacity;
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            if (position - head.get() >= capacity) {
+                return false;
+            }
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer.set(index, element);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // ячейку еще не освободил потребитель с прошлого круга
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    public E poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E element = buffer.get(index);
+                    buffer.set(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    // Возвращает время ожидания свободного места
+    public long put(E element) throws InterruptedException {
+        if (offer(element)) {
+            return 0;
+        }
+        long startTime = System.nanoTime();
+        int idle = 0;
+        while (!offer(element)) {
+            idle = idle(idle);
+        }
+        return System.nanoTime() - startTime;
+    }
+
+    public E take() throws InterruptedException {
+        E element = poll();
+        int idle = 0;
+        while (element == null) {
+            idle = idle(idle);
+            element = poll();
+        }
+        return element;
+    }
+
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(capacity, size));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // Размер буфера после округления до степени двойки
+    int slots() {
+        return mask + 1;
+    }
+
+    private static int idle(int idle) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (idle < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (idle < YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return Math.min(idle + 1, YIELD_TRIES);
+    }
+}
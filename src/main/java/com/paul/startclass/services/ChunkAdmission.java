@@ -0,0 +1,40 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.services.BatchResult.ChunkOutcome;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+
+// Допуск чанка к БД перед его транзакцией. Обычно это AdaptiveConcurrencyLimiter, fixed - фиксированное
+// число разрешений без адаптации, как исходный Semaphore(8): база для сравнения с AIMD (режим SEMAPHORE)
+public interface ChunkAdmission {
+
+    // Ждет допуска, возвращает время ожидания. Прерывание потока означает отмену задачи
+    long admit();
+
+    // status: COMPLETED - чанк записал rows строк за elapsedNanos, FAILED - ошибка самого чанка,
+    // CANCELLED - чанк прерван отменой задачи, сроком или ошибкой другого чанка (о нагрузке БД это ничего не говорит)
+    void release(int rows, long elapsedNanos, ChunkOutcome.Status status);
+
+    static ChunkAdmission fixed(int permits) {
+        Semaphore semaphore = new Semaphore(permits);
+        return new ChunkAdmission() {
+            @Override
+            public long admit() {
+                long startTime = System.nanoTime();
+                try {
+                    semaphore.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Interrupted while waiting for a permit");
+                }
+                return System.nanoTime() - startTime;
+            }
+
+            @Override
+            public void release(int rows, long elapsedNanos, ChunkOutcome.Status status) {
+                semaphore.release();
+            }
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package com.paul.startclass.services;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+// Параллельность пакетных операций по размеру пула соединений, а не по числу чанков или потоков:
+// из maximum-pool-size Hikari вычитается запас для HTTP запросов (http-headroom) и соединения
+// читателей (курсор или конвейер держат свое соединение все время операции). Остальное - потолок
+// для AdaptiveConcurrencyLimiter, пула batch-, виртуальных потоков и писателей конвейера.
+// Лишние потоки все равно ждали бы соединения в Hikari (до connectionTimeout), теперь они ждут
+// у лимитера, а лимитер не растет, пока кто-то ждет соединение (poolSaturated).
+// Ожидание соединения - таймер Hikari hikaricp.connections.acquire в /actuator/metrics и /actuator/prometheus
+@Component
+public class ConnectionPoolScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPoolScheduler.class);
+
+    static final int DEFAULT_CONNECTION_LIMIT = 8;
+
+    private final DataSource dataSource;
+    private final int poolSize;
+    private final int parallelism;
+
+    public ConnectionPoolScheduler(DataSource dataSource, MeterRegistry meterRegistry,
+                                   @Value("${batch.pool.http-headroom:2}") int httpHeadroom,
+                                   @Value("${batch.pool.readers:1}") int readers) {
+        this.dataSource = dataSource;
+        if (dataSource instanceof HikariDataSource hikariDataSource) {
+            this.poolSize = hikariDataSource.getMaximumPoolSize();
+            this.parallelism = Math.max(1, poolSize - httpHeadroom - readers);
+        } else {
+            this.poolSize = -1;
+            this.parallelism = DEFAULT_CONNECTION_LIMIT;
+        }
+        Gauge.builder("batch.pool.parallelism", this, ConnectionPoolScheduler::parallelism)
+                .description("Chunks allowed to hold a connection at once, derived from the pool size")
+                .register(meterRegistry);
+        log.info("Batch parallelism = {} (pool size = {}, http headroom = {}, readers = {})",
+                parallelism, poolSize, httpHeadroom, readers);
+    }
+
+    // Сколько чанков одновременно могут держать соединение
+    public int parallelism() {
+        return parallelism;
+    }
+
+    // Не больше, чем соединений для чанков: лишние потоки только ждали бы пул
+    public int workers(int configured) {
+        return configured > 0 ? Math.min(configured, parallelism) : parallelism;
+    }
+
+    // Кто-то уже ждет соединение: еще один параллельный чанк ничего не ускорит
+    public boolean poolSaturated() {
+        HikariPoolMXBean pool = pool();
+        return pool != null && pool.getThreadsAwaitingConnection() > 0;
+    }
+
+    // Пул Hikari создается при первом getConnection, до этого MXBean нет
+    private HikariPoolMXBean pool() {
+        return dataSource instanceof HikariDataSource hikariDataSource ? hikariDataSource.getHikariPoolMXBean() : null;
+    }
+}
@@ -0,0 +1,281 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.models.BatchChunk;
+import com.paul.startclass.models.Student;
+import com.paul.startclass.repository.BatchChunkRepository;
+import com.paul.startclass.repository.BatchChunkRepository.OwnerCount;
+import com.paul.startclass.repository.BatchChunkRepository.StatusCount;
+import com.paul.startclass.services.BatchResult.ChunkOutcome;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Добавление префиксов несколькими экземплярами приложения над одной БД.
+// createJob делит students на диапазоны ID (как PARTITIONED) и записывает их в sova.batch_chunks как PENDING.
+// Каждый экземпляр в короткой транзакции захватывает до claim-size чанков (SELECT ... FOR UPDATE SKIP LOCKED,
+// затем OWNER и HEARTBEAT_AT), обрабатывает их движком и повторяет, пока свободные чанки не кончатся.
+// Пока экземпляр работает, отдельный поток продлевает аренду его чанков (heartbeat). Если экземпляр упал,
+// через lease-seconds его чанки снова захватываются другими. Чанк отмечается DONE в транзакции самого чанка
+// и только если он все еще принадлежит этому экземпляру: экземпляр, потерявший аренду (долгая пауза GC,
+// обрыв связи с БД), откатывает свои изменения, а не пишет поверх нового владельца.
+// Изменение идемпотентно (NameTransform), поэтому повторная обработка диапазона после сбоя безопасна.
+// Попытка засчитывается при захвате, чтобы учитывались и падения экземпляра. Если обработка упала, попытка
+// остается только у чанка с ошибкой, отмененным вместе с ним чанкам она возвращается. Чанк, который не удалось
+// обработать max-attempts раз, становится FAILED и виден в статусе задачи
+@Service
+public class DistributedChunkService {
+
+    private static final Logger log = LoggerFactory.getLogger(DistributedChunkService.class);
+
+    static final String INSERT_CHUNK = "INSERT INTO sova.batch_chunks (ID, JOB_ID, CHUNK_NO, FROM_ID, TO_ID, STATUS,"
+            + " ATTEMPTS, ROWS_WRITTEN) VALUES (?, ?, ?, ?, ?, ?, 0, 0)";
+
+    @Autowired
+    BatchChunkRepository batchChunkRepository;
+
+    @Autowired
+    StudentBatchService studentBatchService;
+
+    @Autowired
+    BatchProcessingEngine<Student> batchProcessingEngine;
+
+    @Autowired
+    BatchExecutor batchExecutor;
+
+    @Autowired
+    BatchMetrics batchMetrics;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+    private final int leaseSeconds;
+    private final int heartbeatSeconds;
+    private final int maxAttempts;
+    private final int claimSize;
+    private final int pollSeconds;
+    private final AtomicBoolean working = new AtomicBoolean();
+    // heartbeat и опрос в разных потоках: обработка в потоке опроса не должна задерживать продление аренды
+    private final ScheduledExecutorService scheduler =
+            Executors.newScheduledThreadPool(2, new CustomizableThreadFactory("chunk-heartbeat-"));
+
+    public DistributedChunkService(PlatformTransactionManager transactionManager, ConnectionPoolScheduler poolScheduler,
+                                   @Value("${batch.distributed.node-id:}") String nodeId,
+                                   @Value("${batch.distributed.lease-seconds:30}") int leaseSeconds,
+                                   @Value("${batch.distributed.heartbeat-seconds:10}") int heartbeatSeconds,
+                                   @Value("${batch.distributed.max-attempts:3}") int maxAttempts,
+                                   @Value("${batch.distributed.claim-size:0}") int claimSize,
+                                   @Value("${batch.distributed.poll-seconds:0}") int pollSeconds) {
+        if (heartbeatSeconds <= 0 || heartbeatSeconds >= leaseSeconds) {
+            throw new IllegalArgumentException("batch.distributed.heartbeat-seconds must be positive and less than"
+                    + " lease-seconds (" + leaseSeconds + "), got " + heartbeatSeconds);
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // pid@host: у каждой JVM свой, в том числе у нескольких экземпляров на одной машине
+        this.nodeId = nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+        this.leaseSeconds = leaseSeconds;
+        this.heartbeatSeconds = heartbeatSeconds;
+        this.maxAttempts = maxAttempts;
+        // захваченные сверх параллельности чанки только ждали бы, занимая аренду
+        this.claimSize = poolScheduler.workers(claimSize);
+        this.pollSeconds = pollSeconds;
+    }
+
+    @PostConstruct
+    void start() {
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        if (pollSeconds > 0) {
+            scheduler.scheduleWithFixedDelay(this::poll, pollSeconds, pollSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public JobStatus createJob(int rowsPerRange) {
+        String jobId = UUID.randomUUID().toString();
+        List<IdRange> ranges = studentBatchService.partitions(rowsPerRange);
+        List<Object[]> rows = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            BatchChunk chunk = new BatchChunk(jobId, i, ranges.get(i).fromId(), ranges.get(i).toId());
+            rows.add(new Object[]{chunk.getId(), jobId, i, chunk.getFromId(), chunk.getToId(), chunk.getStatus()});
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_CHUNK, rows));
+        log.info("Distributed job {} created by {}, chunks = {}", jobId, nodeId, ranges.size());
+        return status(jobId).orElseThrow();
+    }
+
+    // Пустой Optional - этот экземпляр уже разбирает чанки (через опрос или другой запрос).
+    // Два цикла на одном экземпляре не нужны: release после ошибки одного отпустил бы чанки другого
+    public Optional<BatchResult> work() {
+        if (!working.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(workClaimed());
+        } finally {
+            working.set(false);
+        }
+    }
+
+    private BatchResult workClaimed() {
+        long startTime = System.nanoTime();
+        List<BatchResult> rounds = new ArrayList<>();
+        List<BatchChunk> claimed;
+        while (!(claimed = claim()).isEmpty()) {
+            LongAdder scanned = new LongAdder();
+            try {
+                rounds.add(batchProcessingEngine.process("add-prefix (distributed)", claimed, batchExecutor.executor(),
+                        chunk -> addPrefix(chunk, scanned), batchMetrics.chunkListener("distributed"))
+                        .withRowsScanned(scanned.sum()));
+            } catch (BatchFailedException e) {
+                release(claimed, e);
+                throw e;
+            }
+        }
+        BatchResult result = total(rounds, System.nanoTime() - startTime);
+        if (result.chunks() > 0) {
+            log.info("Node {} finished, {}", nodeId, result);
+        }
+        return result;
+    }
+
+    // Короткая транзакция: блокировки строк держатся только на время SELECT и UPDATE, а не на время обработки
+    private List<BatchChunk> claim() {
+        List<BatchChunk> chunks = transactionTemplate.execute(status -> {
+            batchChunkRepository.failExpired(leaseSeconds, maxAttempts);
+            List<BatchChunk> claimable = batchChunkRepository.lockClaimable(leaseSeconds, maxAttempts, claimSize);
+            if (!claimable.isEmpty()) {
+                batchChunkRepository.claim(claimable.stream().map(BatchChunk::getId).toList(), nodeId);
+            }
+            return claimable;
+        });
+        long reclaimed = chunks.stream().filter(chunk -> BatchChunk.CLAIMED.equals(chunk.getStatus())).count();
+        if (reclaimed > 0) {
+            log.info("Node {} claimed {} chunks, {} with expired lease", nodeId, chunks.size(), reclaimed);
+        } else if (!chunks.isEmpty()) {
+            log.debug("Node {} claimed {} chunks", nodeId, chunks.size());
+        }
+        return chunks;
+    }
+
+    private int addPrefix(BatchChunk chunk, LongAdder scanned) {
+        int rows = studentBatchService.addPrefix(new IdRange(chunk.getFromId(), chunk.getToId()), scanned);
+        if (batchChunkRepository.complete(chunk.getId(), nodeId, rows) == 0) {
+            throw new IllegalStateException("Chunk " + chunk.getId() + " is no longer claimed by " + nodeId
+                    + ": lease expired and another node took it over");
+        }
+        return rows;
+    }
+
+    // Чанки, которые этот экземпляр уже не обработает, сразу достаются другим. Индекс результата чанка -
+    // его позиция в claimed (engine.process запускает чанки по порядку). FAILED - только чанк с первой ошибкой,
+    // остальные отменены из-за нее
+    private void release(List<BatchChunk> claimed, BatchFailedException failure) {
+        List<String> failed = failure.getResult().chunkResults().stream()
+                .filter(outcome -> outcome.status() == ChunkOutcome.Status.FAILED)
+                .map(outcome -> claimed.get(outcome.index()).getId())
+                .toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                int retried = failed.isEmpty() ? 0 : batchChunkRepository.releaseFailed(failed, nodeId, maxAttempts);
+                int released = batchChunkRepository.releaseUnfinished(nodeId);
+                log.warn("Node {} failed, failed chunks = {}, released chunks = {}", nodeId, retried, released);
+            });
+        } catch (RuntimeException e) {
+            // без release чанки вернутся по истечении аренды
+            failure.addSuppressed(e);
+        }
+    }
+
+    private void heartbeat() {
+        if (!working.get()) {
+            return;
+        }
+        try {
+            transactionTemplate.execute(status -> batchChunkRepository.heartbeat(nodeId));
+        } catch (RuntimeException e) {
+            // аренда истечет, чанки заберут другие, а complete этого экземпляра откатится
+            log.warn("Heartbeat of {} failed", nodeId, e);
+        }
+    }
+
+    private void poll() {
+        try {
+            work();
+        } catch (RuntimeException e) {
+            // исключение отменило бы все следующие опросы
+            log.warn("Distributed work of {} failed: {}", nodeId, e.toString());
+        }
+    }
+
+    public Optional<JobStatus> status(String jobId) {
+        List<StatusCount> counts = batchChunkRepository.countByStatus(jobId);
+        if (counts.isEmpty()) {
+            return Optional.empty();
+        }
+        Map<String, Long> chunks = new LinkedHashMap<>();
+        long rows = 0;
+        for (StatusCount count : counts) {
+            chunks.put(count.getStatus(), count.getChunks());
+            rows += count.getRows();
+        }
+        Map<String, Long> rowsByOwner = new LinkedHashMap<>();
+        for (OwnerCount count : batchChunkRepository.countDoneByOwner(jobId)) {
+            rowsByOwner.put(count.getOwner(), count.getRows());
+        }
+        return Optional.of(new JobStatus(jobId, chunks, rows, rowsByOwner));
+    }
+
+    // Итог всех раундов захвата этого экземпляра
+    private BatchResult total(List<BatchResult> rounds, long elapsedNanos) {
+        long rows = 0;
+        long scanned = 0;
+        int chunks = 0;
+        long chunkNanos = 0;
+        long maxChunkNanos = 0;
+        List<ChunkOutcome> outcomes = new ArrayList<>();
+        for (BatchResult round : rounds) {
+            rows += round.rowsAffected();
+            scanned += round.rowsScanned();
+            chunks += round.chunks();
+            chunkNanos += round.chunkNanos();
+            maxChunkNanos = Math.max(maxChunkNanos, round.maxChunkNanos());
+            outcomes.addAll(round.chunkResults());
+        }
+        return new BatchResult("add-prefix (distributed, " + nodeId + ")", rows, elapsedNanos,
+                chunks, chunkNanos, maxChunkNanos, scanned, outcomes);
+    }
+
+    // chunks - количество чанков по статусам, rowsByOwner - строки, записанные каждым экземпляром
+    public record JobStatus(String jobId, Map<String, Long> chunks, long rowsWritten, Map<String, Long> rowsByOwner) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.paul.startclass.services;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+// Способы параллельного выполнения чанков и размер чанка для каждого из них
+public enum ExecutionMode {
+    THREAD(5000),
+    RUNNABLE(5000),
+    POOL(5000),
+    // тот же размер чанка, что у RUNNABLE: режимы отличаются только допуском к БД
+    SEMAPHORE(5000),
+    // виртуальный поток на каждый маленький чанк
+    VIRTUAL(500),
+    // для Fork/Join это порог, до которого дробится диапазон ID
+    FORK_JOIN(2000),
+    // страница, которую читатель конвейера передает преобразователю и писателям
+    PIPELINE(1000),
+    // примерное количество строк в диапазоне ID, который чанк сам читает и пишет
+    PARTITIONED(5000);
+
+    private final int chunkSize;
+
+    ExecutionMode(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    public String tag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    // Имя режима из запроса в любом регистре; неизвестное имя - IllegalArgumentException со списком допустимых
+    public static ExecutionMode of(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown execution mode '" + value + "', allowed: "
+                    + Arrays.stream(values()).map(ExecutionMode::tag).collect(Collectors.joining(", ")));
+        }
+    }
+}
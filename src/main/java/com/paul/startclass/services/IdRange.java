@@ -0,0 +1,16 @@
+package com.paul.startclass.services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Диапазон ID [fromId, toId], обе границы включительно
+public record IdRange(int fromId, int toId) {
+
+    public static List<IdRange> split(int minId, int maxId, int rangeSize) {
+        List<IdRange> ranges = new ArrayList<>();
+        for (long fromId = minId; fromId <= maxId; fromId += rangeSize) {
+            ranges.add(new IdRange((int) fromId, (int) Math.min(fromId + rangeSize - 1, maxId)));
+        }
+        return ranges;
+    }
+}
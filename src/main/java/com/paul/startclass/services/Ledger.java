@@ -0,0 +1,222 @@
+package com.paul.startclass.services;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Книга счетов в памяти: балансы в массиве long, а не в объектах Account, на счет приходится 8 байт.
+// Блокировка не на каждый счет, а на полосу (stripe) счетов: номер полосы = id & (stripes - 1).
+// Перевод берет обе полосы всегда по возрастанию номера, поэтому встречные переводы не дают deadlock
+// (в SmartBank порядок по hashCode, который у разных счетов может совпасть).
+// Деньги не создаются и не исчезают: сумма балансов всегда равна начальной, это проверяет verifyConservation()
+public class Ledger {
+
+    private final long[] balances;
+    private final ReentrantLock[] stripes;
+    private final int stripeMask;
+    private final long expectedTotal;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public Ledger(int accounts, long initialBalance, int stripeCount) {
+        if (accounts < 2) {
+            throw new IllegalArgumentException("Ledger needs at least 2 accounts: " + accounts);
+        }
+        if (initialBalance < 0) {
+            throw new IllegalArgumentException("Initial balance must not be negative: " + initialBalance);
+        }
+        // количество полос округляется до степени двойки, чтобы номер полосы считался маской
+        int requested = Math.max(1, Math.min(stripeCount, accounts));
+        int size = requested == 1 ? 1 : Integer.highestOneBit(requested - 1) << 1;
+        this.balances = new long[accounts];
+        this.stripes = new ReentrantLock[size];
+        this.stripeMask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        Arrays.fill(balances, initialBalance);
+        this.expectedTotal = Math.multiplyExact(initialBalance, (long) accounts);
+    }
+
+    // false, если на счете не хватает денег: баланс не уходит в минус
+    public boolean transfer(int fromId, int toId, long amount) {
+        validate(fromId, toId, amount);
+        boolean done = apply(fromId, toId, amount);
+        (done ? completed : rejected).increment();
+        return done;
+    }
+
+    // Пачка переводов одним вызовом: счетчики обновляются один раз на пачку. Вся пачка проверяется до первой
+    // блокировки, поэтому некорректный перевод (тот же счет, сумма <= 0, нет счета) отклоняет пачку целиком и
+    // ничего не применяется. Нехватка денег - не ошибка пачки, такой перевод только отклоняется.
+    // Блокировки берутся на каждый перевод: при случайных счетах и 1024 полосах у соседних переводов почти
+    // не бывает одной пары полос, и держать их между переводами нет смысла. Возвращает количество отклоненных
+    public int transferAll(TransferBatch batch) {
+        int size = batch.size();
+        for (int i = 0; i < size; i++) {
+            try {
+                validate(batch.fromIds[i], batch.toIds[i], batch.amounts[i]);
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid transfer #" + i + " in batch, nothing applied: "
+                        + e.getMessage(), e);
+            }
+        }
+        int rejectedInBatch = 0;
+        for (int i = 0; i < size; i++) {
+            if (!apply(batch.fromIds[i], batch.toIds[i], batch.amounts[i])) {
+                rejectedInBatch++;
+            }
+        }
+        completed.add(size - rejectedInBatch);
+        rejected.add(rejectedInBatch);
+        return rejectedInBatch;
+    }
+
+    public long balance(int accountId) {
+        checkAccount(accountId);
+        ReentrantLock lock = stripes[stripe(accountId)];
+        lock.lock();
+        try {
+            return balances[accountId];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Согласованная сумма: берутся все полосы по возрастанию, переводы на это время останавливаются
+    public long total() {
+        for (ReentrantLock lock : stripes) {
+            lock.lock();
+        }
+        try {
+            long total = 0;
+            for (long balance : balances) {
+                total += balance;
+            }
+            return total;
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    public void verifyConservation() {
+        long total = total();
+        if (total != expectedTotal) {
+            throw new IllegalStateException("Money is not conserved: expected " + expectedTotal + ", actual " + total);
+        }
+    }
+
+    public int accounts() {
+        return balances.length;
+    }
+
+    public int stripes() {
+        return stripes.length;
+    }
+
+    public long completedTransfers() {
+        return completed.sum();
+    }
+
+    public long rejectedTransfers() {
+        return rejected.sum();
+    }
+
+    private boolean apply(int fromId, int toId, long amount) {
+        int firstStripe = Math.min(stripe(fromId), stripe(toId));
+        int secondStripe = Math.max(stripe(fromId), stripe(toId));
+        lock(firstStripe, secondStripe);
+        try {
+            return move(fromId, toId, amount);
+        } finally {
+            unlock(firstStripe, secondStripe);
+        }
+    }
+
+    // До блокировок: под блокировкой перевод уже не может упасть на середине
+    private void validate(int fromId, int toId, long amount) {
+        checkAccount(fromId);
+        checkAccount(toId);
+        if (fromId == toId) {
+            throw new IllegalArgumentException("Transfer to the same account: " + fromId);
+        }
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
+        }
+    }
+
+    // Вызывается под блокировками полос обоих счетов, перевод уже проверен validate()
+    private boolean move(int fromId, int toId, long amount) {
+        if (balances[fromId] < amount) {
+            return false;
+        }
+        balances[fromId] -= amount;
+        balances[toId] += amount;
+        return true;
+    }
+
+    private void lock(int firstStripe, int secondStripe) {
+        stripes[firstStripe].lock();
+        if (secondStripe != firstStripe) {
+            stripes[secondStripe].lock();
+        }
+    }
+
+    private void unlock(int firstStripe, int secondStripe) {
+        if (secondStripe != firstStripe) {
+            stripes[secondStripe].unlock();
+        }
+        stripes[firstStripe].unlock();
+    }
+
+    private int stripe(int accountId) {
+        return accountId & stripeMask;
+    }
+
+    private void checkAccount(int accountId) {
+        if (accountId < 0 || accountId >= balances.length) {
+            throw new IndexOutOfBoundsException("No such account: " + accountId);
+        }
+    }
+
+    // Переводы пачкой в трех параллельных массивах примитивов, без объекта на каждый перевод.
+    // Пачку можно заполнять и отправлять повторно, после transferAll ее сбрасывают через clear()
+    public static class TransferBatch {
+        private final int[] fromIds;
+        private final int[] toIds;
+        private final long[] amounts;
+        private int size;
+
+        public TransferBatch(int capacity) {
+            this.fromIds = new int[capacity];
+            this.toIds = new int[capacity];
+            this.amounts = new long[capacity];
+        }
+
+        public boolean add(int fromId, int toId, long amount) {
+            if (size == fromIds.length) {
+                return false;
+            }
+            fromIds[size] = fromId;
+            toIds[size] = toId;
+            amounts[size] = amount;
+            size++;
+            return true;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isFull() {
+            return size == fromIds.length;
+        }
+
+        public void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.services.Ledger.TransferBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Нагрузка на Ledger: потоки по числу ядер генерируют случайные переводы и отправляют их пачками,
+// после прогона проверяется, что сумма денег в книге не изменилась.
+// В отличие от Bank/SmartBank/SuperSmartBank здесь нет sleep и println внутри блокировки
+@Service
+public class LedgerService {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerService.class);
+
+    static final int BATCH_SIZE = 1024;
+    static final long MAX_AMOUNT = 100;
+
+    private final Ledger ledger;
+
+    public LedgerService(@Value("${ledger.accounts:1000000}") int accounts,
+                         @Value("${ledger.initial-balance:1000}") long initialBalance,
+                         @Value("${ledger.stripes:1024}") int stripes) {
+        this.ledger = new Ledger(accounts, initialBalance, stripes);
+    }
+
+    public Ledger ledger() {
+        return ledger;
+    }
+
+    // threads = 0 - по числу доступных процессоров
+    public BatchResult transferRandom(long transfers, int threads) throws InterruptedException {
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        long startTime = System.nanoTime();
+        List<Future<Long>> futures = new ArrayList<>();
+        try (ExecutorService executorService = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("ledger-"))) {
+            for (int i = 0; i < workers; i++) {
+                long share = transfers / workers + (i < transfers % workers ? 1 : 0);
+                futures.add(executorService.submit(() -> transferRandom(share)));
+            }
+        }
+        long rejected = 0;
+        for (Future<Long> future : futures) {
+            try {
+                rejected += future.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Ledger worker failed", e.getCause());
+            }
+        }
+        long elapsed = System.nanoTime() - startTime;
+        ledger.verifyConservation();
+
+        BatchResult result = new BatchResult("ledger-transfers (" + workers + " threads)", transfers, elapsed);
+        log.info("{}, rejected = {}, stripes = {}, total = {}", result, rejected, ledger.stripes(), ledger.total());
+        return result;
+    }
+
+    private long transferRandom(long transfers) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        TransferBatch batch = new TransferBatch(BATCH_SIZE);
+        int accounts = ledger.accounts();
+        long rejected = 0;
+        for (long i = 0; i < transfers; i++) {
+            int fromId = random.nextInt(accounts);
+            int toId = random.nextInt(accounts - 1);
+            // второй счет выбирается среди остальных, перевода самому себе не бывает
+            batch.add(fromId, toId >= fromId ? toId + 1 : toId, 1 + random.nextLong(MAX_AMOUNT));
+            if (batch.isFull()) {
+                rejected += ledger.transferAll(batch);
+                batch.clear();
+            }
+        }
+        rejected += ledger.transferAll(batch);
+        return rejected;
+    }
+}
@@ -0,0 +1,291 @@
+package com.paul.startclass.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Фоновая проверка блокировок через ThreadMXBean, раз в interval-seconds:
+// - findDeadlockedThreads находит циклы и на synchronized, и на ReentrantLock. Для нового цикла стеки
+//   участников печатаются в лог один раз, текущие циклы видны в /diagnostics/locks;
+// - по каждому потоку, который ждет занятый монитор (BLOCKED) или lock с владельцем, копится статистика
+//   по этой блокировке: сколько раз поток застали в ожидании, сколько потоков ждало одновременно и время
+//   ожидания (прирост blockedTime/waitedTime потока между проверками, нужен contention monitoring).
+// Проверка без стеков (getThreadInfo(ids, 0)), стеки снимаются только при deadlock, поэтому ее можно
+// держать включенной постоянно; сколько стоит проверка, показывает таймер diagnostics.locks.check.
+// Виртуальные потоки ThreadMXBean не видит
+@Component
+public class LockWatchdog {
+
+    private static final Logger log = LoggerFactory.getLogger(LockWatchdog.class);
+
+    static final int MAX_TRACKED_LOCKS = 256;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final long intervalSeconds;
+    private final int top;
+    private final boolean contentionMonitoring;
+
+    private final Map<String, LockStats> locks = new ConcurrentHashMap<>();
+    // участники цикла -> когда цикл впервые найден
+    private final Map<String, Instant> knownCycles = new ConcurrentHashMap<>();
+    private Map<Long, long[]> previousTimes = new HashMap<>();
+    private volatile List<DeadlockCycle> deadlocks = List.of();
+    private volatile Instant checkedAt;
+    private volatile long checks;
+
+    private final Counter deadlocksDetected;
+    private final Timer checkTimer;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("lock-watchdog-"));
+
+    public LockWatchdog(MeterRegistry meterRegistry,
+                        @Value("${diagnostics.locks.interval-seconds:5}") long intervalSeconds,
+                        @Value("${diagnostics.locks.top:10}") int top,
+                        @Value("${diagnostics.locks.contention-monitoring:true}") boolean contentionMonitoring) {
+        this.intervalSeconds = intervalSeconds;
+        this.top = top;
+        this.contentionMonitoring = contentionMonitoring && threadMXBean.isThreadContentionMonitoringSupported();
+        if (this.contentionMonitoring) {
+            threadMXBean.setThreadContentionMonitoringEnabled(true);
+        }
+        this.deadlocksDetected = Counter.builder("diagnostics.deadlocks.detected")
+                .description("Deadlock cycles found by the lock watchdog")
+                .register(meterRegistry);
+        Gauge.builder("diagnostics.deadlocked.threads", this, watchdog -> watchdog.deadlocks.stream()
+                        .mapToInt(cycle -> cycle.threads().size()).sum())
+                .register(meterRegistry);
+        this.checkTimer = Timer.builder("diagnostics.locks.check")
+                .description("Cost of one lock watchdog check")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (intervalSeconds > 0) {
+            scheduler.scheduleWithFixedDelay(this::checkSafely, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void checkSafely() {
+        try {
+            check();
+        } catch (RuntimeException e) {
+            // исключение отменило бы все следующие проверки
+            log.warn("Lock watchdog check failed", e);
+        }
+    }
+
+    public synchronized void check() {
+        long startTime = System.nanoTime();
+        findDeadlocks();
+        sampleContention();
+        checks++;
+        checkedAt = Instant.now();
+        checkTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+
+    public LockReport report() {
+        List<ContendedLock> contended = locks.values().stream()
+                .sorted(Comparator.comparingLong(LockStats::waitMillis).thenComparingLong(LockStats::samples).reversed())
+                .limit(top)
+                .map(LockStats::toContendedLock)
+                .toList();
+        return new LockReport(checkedAt, checks, contentionMonitoring, checkTimer.mean(TimeUnit.MILLISECONDS),
+                deadlocks, contended);
+    }
+
+    private void findDeadlocks() {
+        long[] ids = threadMXBean.findDeadlockedThreads();
+        if (ids == null) {
+            deadlocks = List.of();
+            return;
+        }
+        Map<Long, ThreadInfo> byId = new HashMap<>();
+        for (ThreadInfo info : threadMXBean.getThreadInfo(ids, true, true)) {
+            if (info != null) {
+                byId.put(info.getThreadId(), info);
+            }
+        }
+        deadlocks = cycles(byId).stream().map(this::toCycle).toList();
+    }
+
+    // findDeadlockedThreads может вернуть и потоки, которые ждут участника цикла, но сами в цикл не входят.
+    // Поэтому идем по цепочке "жду блокировку -> ее владелец", пока поток не повторится в этом же обходе:
+    // цикл - часть обхода от первого вхождения повторившегося потока, все до него - ждущие цикл
+    static List<List<ThreadInfo>> cycles(Map<Long, ThreadInfo> byId) {
+        List<List<ThreadInfo>> cycles = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (ThreadInfo info : byId.values()) {
+            List<ThreadInfo> walk = new ArrayList<>();
+            Map<Long, Integer> positions = new HashMap<>();
+            ThreadInfo current = info;
+            while (current != null && !seen.contains(current.getThreadId())
+                    && positions.putIfAbsent(current.getThreadId(), walk.size()) == null) {
+                walk.add(current);
+                current = byId.get(current.getLockOwnerId());
+            }
+            // дошли до потока из прошлых обходов: этот цикл (или его отсутствие) уже учтен
+            if (current != null && !seen.contains(current.getThreadId())) {
+                cycles.add(walk.subList(positions.get(current.getThreadId()), walk.size()));
+            }
+            seen.addAll(positions.keySet());
+        }
+        return cycles;
+    }
+
+    private DeadlockCycle toCycle(List<ThreadInfo> cycle) {
+        List<ThreadSnapshot> threads = cycle.stream().map(this::snapshot).toList();
+        String key = threads.stream().map(ThreadSnapshot::id).sorted().toList().toString();
+        Instant now = Instant.now();
+        Instant detectedAt = knownCycles.putIfAbsent(key, now);
+        if (detectedAt == null) {
+            deadlocksDetected.increment();
+            StringBuilder dump = new StringBuilder("Deadlock detected between threads " + key + ":\n");
+            threads.forEach(thread -> {
+                dump.append('"').append(thread.name()).append("\" ").append(thread.state())
+                        .append(" on ").append(thread.lockName()).append(" owned by \"").append(thread.lockOwnerName()).append("\"\n");
+                thread.stack().forEach(line -> dump.append("\t").append(line).append('\n'));
+            });
+            log.warn("{}", dump);
+        }
+        return new DeadlockCycle(detectedAt == null ? now : detectedAt, threads);
+    }
+
+    private ThreadSnapshot snapshot(ThreadInfo info) {
+        List<String> stack = new ArrayList<>();
+        StackTraceElement[] frames = info.getStackTrace();
+        for (int depth = 0; depth < frames.length; depth++) {
+            stack.add("at " + frames[depth]);
+            for (MonitorInfo monitor : info.getLockedMonitors()) {
+                if (monitor.getLockedStackDepth() == depth) {
+                    stack.add("- locked " + monitor);
+                }
+            }
+        }
+        for (LockInfo synchronizer : info.getLockedSynchronizers()) {
+            stack.add("- holds " + synchronizer);
+        }
+        return new ThreadSnapshot(info.getThreadId(), info.getThreadName(), info.getThreadState().name(),
+                info.getLockName(), info.getLockOwnerName(), stack);
+    }
+
+    // Ожидание условия (Object.wait, Condition.await в пустом пуле) - не конкуренция: у такой блокировки нет владельца
+    private void sampleContention() {
+        Map<Long, long[]> times = new HashMap<>();
+        Map<String, Integer> waiters = new HashMap<>();
+        for (ThreadInfo info : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds(), 0)) {
+            if (info == null) {
+                continue;
+            }
+            long[] current = {info.getBlockedTime(), info.getWaitedTime()};
+            long[] previous = previousTimes.getOrDefault(info.getThreadId(), current);
+            times.put(info.getThreadId(), current);
+            if (info.getLockName() == null || info.getLockOwnerId() == -1) {
+                continue;
+            }
+            boolean monitor = info.getThreadState() == Thread.State.BLOCKED;
+            // прирост за интервал: поток мог ждать и другую блокировку, для оценки этого достаточно
+            long waitMillis = contentionMonitoring ? Math.max(0, monitor ? current[0] - previous[0] : current[1] - previous[1]) : 0;
+            waiters.merge(info.getLockName(), 1, Integer::sum);
+            locks.computeIfAbsent(info.getLockName(), name -> new LockStats(name, monitor ? "monitor" : "lock"))
+                    .sample(waitMillis, info.getLockOwnerName());
+        }
+        waiters.forEach((lockName, count) -> locks.get(lockName).waiters(count));
+        previousTimes = times;
+        evictQuietLocks();
+    }
+
+    private void evictQuietLocks() {
+        if (locks.size() <= MAX_TRACKED_LOCKS) {
+            return;
+        }
+        locks.values().stream()
+                .sorted(Comparator.comparingLong(LockStats::waitMillis).thenComparingLong(LockStats::samples))
+                .limit(locks.size() - MAX_TRACKED_LOCKS)
+                .toList()
+                .forEach(stats -> locks.remove(stats.lockName));
+    }
+
+    // Пишется из check(), читается из report() в потоке запроса
+    private static class LockStats {
+        private final String lockName;
+        private final String kind;
+        private long samples;
+        private long waitMillis;
+        private int maxWaiters;
+        private String lastOwner;
+
+        LockStats(String lockName, String kind) {
+            this.lockName = lockName;
+            this.kind = kind;
+        }
+
+        synchronized void sample(long waitMillis, String owner) {
+            this.samples++;
+            this.waitMillis += waitMillis;
+            this.lastOwner = owner;
+        }
+
+        synchronized void waiters(int count) {
+            maxWaiters = Math.max(maxWaiters, count);
+        }
+
+        synchronized long samples() {
+            return samples;
+        }
+
+        synchronized long waitMillis() {
+            return waitMillis;
+        }
+
+        synchronized ContendedLock toContendedLock() {
+            return new ContendedLock(lockName, kind, samples, maxWaiters, waitMillis, lastOwner);
+        }
+    }
+
+    public record ThreadSnapshot(long id, String name, String state, String lockName, String lockOwnerName,
+                                 List<String> stack) {
+    }
+
+    public record DeadlockCycle(Instant detectedAt, List<ThreadSnapshot> threads) {
+    }
+
+    public record ContendedLock(String lockName, String kind, long samples, int maxWaiters, long waitMillis,
+                                String lastOwner) {
+    }
+
+    public record LockReport(Instant checkedAt, long checks, boolean contentionMonitoring, double meanCheckMillis,
+                             List<DeadlockCycle> deadlocks, List<ContendedLock> contendedLocks) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.paul.startclass.services;
+
+// Идемпотентное изменение имени: условие "строку нужно менять" и само изменение.
+// Строки, которые уже в нужном состоянии, не пишутся, поэтому повторный запуск ничего не меняет,
+// а запуск после частично выполненного меняет только оставшиеся строки.
+// Там, где SQL пишем сами (pushdown, bulk), условие проверяет БД через LIKE с likePattern(),
+// в остальных стратегиях строки фильтруются в Java через needsChange(). Имя NULL не меняется: LIKE с NULL
+// тоже не совпадает ни в одну сторону
+public enum NameTransform {
+
+    // префикс в конце имени: уже добавлен, второй раз не добавляем
+    ADD_PREFIX("%" + StudentPrefixService.PREFIX, false) {
+        @Override
+        public boolean needsChange(String name) {
+            return name != null && !name.endsWith(StudentPrefixService.PREFIX);
+        }
+
+        @Override
+        public String apply(String name) {
+            return name + StudentPrefixService.PREFIX;
+        }
+    },
+    REMOVE_PREFIX("%" + StudentPrefixService.PREFIX + "%", true) {
+        @Override
+        public boolean needsChange(String name) {
+            return name != null && name.contains(StudentPrefixService.PREFIX);
+        }
+
+        @Override
+        public String apply(String name) {
+            return name.replace(StudentPrefixService.PREFIX, "");
+        }
+    };
+
+    private final String likePattern;
+    private final boolean changeMatching;
+
+    NameTransform(String likePattern, boolean changeMatching) {
+        this.likePattern = likePattern;
+        this.changeMatching = changeMatching;
+    }
+
+    public abstract boolean needsChange(String name);
+
+    public abstract String apply(String name);
+
+    // Шаблон LIKE для имен, которые нужно менять (changeMatching) или, наоборот, уже изменены
+    public String likePattern() {
+        return likePattern;
+    }
+
+    // Условие для WHERE по колонке NAME с одним параметром likePattern()
+    public String sqlCondition() {
+        return changeMatching ? "NAME LIKE ?" : "NAME NOT LIKE ?";
+    }
+}
@@ -0,0 +1,43 @@
+package com.paul.startclass.services;
+
+// Решение deadlock: счета блокируются всегда в одном порядке, по hashCode.
+// При совпадении hashCode порядок снова зависит от направления перевода, надежнее упорядочивать
+// по идентификатору счета, как это делает Ledger
+public class SmartBank {
+
+    private final long pauseMillis;
+    private final boolean verbose;
+
+    public SmartBank() {
+        this(100, true);
+    }
+
+    public SmartBank(long pauseMillis, boolean verbose) {
+        this.pauseMillis = pauseMillis;
+        this.verbose = verbose;
+    }
+
+    public void transferMoney(Account fromAccount, Account toAccount, int amount) throws InterruptedException {
+        Account firstAccount, secondAccount;
+        if(fromAccount.hashCode() > toAccount.hashCode()){
+            firstAccount = fromAccount;
+            secondAccount = toAccount;
+        }else {
+            firstAccount = toAccount;
+            secondAccount = fromAccount;
+        }
+
+        synchronized (firstAccount) {
+            if (pauseMillis > 0) {
+                Thread.sleep(pauseMillis);
+            }
+            synchronized (secondAccount) {
+                fromAccount.count = fromAccount.count - amount;
+                toAccount.count = toAccount.count + amount;
+                if (verbose) {
+                    System.out.println("From Smart Bank Operation's completed");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.models.Student;
+import com.paul.startclass.repository.StudentRepository;
+import com.paul.startclass.services.BatchProcessingEngine.ChunkListener;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Многопоточное добавление префикса: Thread, Runnable, пул потоков, Semaphore и виртуальные потоки
+// отличаются только executor'ом, само разбиение и запись делает BatchProcessingEngine.
+// Число одновременно пишущих чанков во всех режимах ограничивает AdaptiveConcurrencyLimiter.
+// Fork/Join делит диапазон ID сам, см. StudentForkJoinService, конвейер чтение/запись - StudentPipelineService.
+// В режиме PARTITIONED таблицу читает не один курсор, а сами чанки: каждый свой диапазон ID на своем соединении.
+// Во всех режимах префикс добавляется только именам без него (NameTransform.ADD_PREFIX), повторный запуск
+// читает таблицу, но ничего не пишет
+@Service
+public class StudentBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentBatchService.class);
+
+    static final int MAX_CHUNKS_IN_FLIGHT = 16;
+    static final int VIRTUAL_CHUNKS_PER_CONNECTION = 4;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Autowired
+    ConnectionPoolScheduler poolScheduler;
+
+    @Autowired
+    BatchExecutor batchExecutor;
+
+    @Autowired
+    BatchMetrics batchMetrics;
+
+    // 0 - размер чанка по умолчанию для режима, см. ExecutionMode
+    @Value("${batch.chunk-size:0}")
+    int chunkSizeOverride;
+
+    // PARTITIONED: границы диапазонов по реальным ID (findSplitPoints) вместо деления MIN..MAX на равные части
+    @Value("${batch.partitioned.sample-splits:false}")
+    boolean sampleSplits;
+
+
+    @Autowired
+    BatchProcessingEngine<Student> batchProcessingEngine;
+
+    @Autowired
+    AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    // SEMAPHORE: фиксированное число чанков, одновременно работающих с БД, не больше соединений для чанков
+    @Value("${batch.semaphore.permits:8}")
+    int semaphorePermits;
+
+    @Autowired
+    StudentForkJoinService studentForkJoinService;
+
+    @Autowired
+    StudentPipelineService studentPipelineService;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public StudentBatchService(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public BatchResult addPrefix(ExecutionMode mode) {
+        return addPrefix(mode, ChunkListener.NONE);
+    }
+
+    public BatchResult addPrefix(ExecutionMode mode, ChunkListener listener) {
+        BatchResult result = run(mode, listener.and(batchMetrics.chunkListener(mode.tag())));
+        batchMetrics.recordOperation(mode.tag(), result);
+        log.info("{}, parallelism = {}", result, poolScheduler.parallelism());
+        return result;
+    }
+
+    private BatchResult run(ExecutionMode mode, ChunkListener listener) {
+        return switch (mode) {
+            case THREAD -> process(mode, task -> new Thread() {
+                public void run() {
+                    task.run();
+                }
+            }.start(), MAX_CHUNKS_IN_FLIGHT, listener);
+            case RUNNABLE -> process(mode, task -> new Thread(task).start(), MAX_CHUNKS_IN_FLIGHT, listener);
+            case POOL -> process(mode, batchExecutor.executor(), MAX_CHUNKS_IN_FLIGHT, listener);
+            // Как RUNNABLE, но вместо AdaptiveConcurrencyLimiter фиксированный Semaphore(permits):
+            // база для сравнения адаптивного лимита с постоянным
+            case SEMAPHORE -> process(mode, task -> new Thread(task).start(), MAX_CHUNKS_IN_FLIGHT, listener,
+                    ChunkAdmission.fixed(poolScheduler.workers(semaphorePermits)));
+            case VIRTUAL -> {
+                int connections = connectionLimit();
+                try (ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor()) {
+                    yield process(mode, gated(executorService, new Semaphore(connections), mode),
+                            connections * VIRTUAL_CHUNKS_PER_CONNECTION, listener);
+                }
+            }
+            case FORK_JOIN -> studentForkJoinService.addPrefix(chunkSize(mode), listener);
+            case PIPELINE -> studentPipelineService.addPrefix(chunkSize(mode), listener);
+            case PARTITIONED -> partitioned(mode, listener);
+        };
+    }
+
+    // Чтение тоже параллельно: чанк - диапазон ID примерно на chunkSize строк, который воркер пула сам читает,
+    // меняет и пишет в своей транзакции. Диапазоны не пересекаются, общего читателя и передачи сущностей нет
+    private BatchResult partitioned(ExecutionMode mode, ChunkListener listener) {
+        List<IdRange> ranges = partitions(chunkSize(mode));
+        LongAdder scanned = new LongAdder();
+        return batchProcessingEngine.process("add-prefix (" + mode.tag() + ")", ranges, batchExecutor.executor(),
+                range -> addPrefix(range, scanned), listener).withRowsScanned(scanned.sum());
+    }
+
+    // По MIN/MAX: ширина диапазона подбирается по плотности ID, для ID из последовательности почти без дыр
+    // в каждом диапазоне около rowsPerRange строк. Если ID распределены неравномерно - sample-splits
+    List<IdRange> partitions(int rowsPerRange) {
+        Integer minId = studentRepository.findMinId();
+        Integer maxId = studentRepository.findMaxId();
+        if (minId == null) {
+            return List.of();
+        }
+        if (!sampleSplits) {
+            long rows = Math.max(1, studentRepository.count());
+            long width = ((long) maxId - minId + 1) * rowsPerRange / rows;
+            return IdRange.split(minId, maxId, (int) Math.max(1, Math.min(Integer.MAX_VALUE, width)));
+        }
+        List<IdRange> ranges = new ArrayList<>();
+        int fromId = minId;
+        for (int splitId : studentRepository.findSplitPoints(rowsPerRange)) {
+            ranges.add(new IdRange(fromId, splitId));
+            fromId = splitId + 1;
+        }
+        if (fromId <= maxId) {
+            ranges.add(new IdRange(fromId, maxId));
+        }
+        return ranges;
+    }
+
+    // Таблица читается курсором в транзакции только для чтения, прочитанные сущности сразу отсоединяются
+    // от контекста, в чанки попадают только строки, которые нужно менять
+    private BatchResult process(ExecutionMode mode, Executor executor, int maxInFlight, ChunkListener listener) {
+        return process(mode, executor, maxInFlight, listener, concurrencyLimiter);
+    }
+
+    private BatchResult process(ExecutionMode mode, Executor executor, int maxInFlight, ChunkListener listener,
+                                ChunkAdmission admission) {
+        long[] scanned = new long[1];
+        BatchResult result = readOnlyTransaction.execute(status -> {
+            try (Stream<Student> students = this.studentRepository.streamAll()
+                    .peek(entityManager::detach)
+                    .peek(student -> scanned[0]++)
+                    .filter(student -> NameTransform.ADD_PREFIX.needsChange(student.getName()))) {
+                return batchProcessingEngine.processStream("add-prefix (" + mode.tag() + ")", students,
+                        chunkSize(mode), maxInFlight, executor, this::addPrefix, listener, admission);
+            }
+        });
+        return result.withRowsScanned(scanned[0]);
+    }
+
+    public int chunkSize(ExecutionMode mode) {
+        return chunkSizeOverride > 0 ? chunkSizeOverride : mode.chunkSize();
+    }
+
+    // Задача запускается сразу, но с БД одновременно работают только permits задач
+    private Executor gated(Executor executor, Semaphore semaphore, ExecutionMode mode) {
+        Timer semaphoreWait = batchMetrics.semaphoreWait(mode.tag());
+        return task -> executor.execute(() -> {
+            long waitStart = System.nanoTime();
+            semaphore.acquireUninterruptibly();
+            semaphoreWait.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+            try {
+                task.run();
+            } finally {
+                semaphore.release();
+            }
+        });
+    }
+
+    // Виртуальных потоков может быть тысячи, а соединений в пуле нет: воркерам отдаем то, что осталось
+    // после читателя и запаса для HTTP
+    int connectionLimit() {
+        return poolScheduler.parallelism();
+    }
+
+    // Также чанк распределенной задачи (DistributedChunkService)
+    int addPrefix(IdRange range, LongAdder scanned) {
+        List<Student> students = studentRepository.findByIdBetween(range.fromId(), range.toId());
+        scanned.add(students.size());
+        List<Student> changed = students.stream()
+                .filter(student -> NameTransform.ADD_PREFIX.needsChange(student.getName()))
+                .toList();
+        changed.forEach(student -> student.setName(NameTransform.ADD_PREFIX.apply(student.getName())));
+        return changed.size();
+    }
+
+    private int addPrefix(List<Student> chunk) {
+        chunk.forEach(student -> student.setName(NameTransform.ADD_PREFIX.apply(student.getName())));
+        this.studentRepository.saveAll(chunk);
+        return chunk.size();
+    }
+}
@@ -0,0 +1,116 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.models.Student;
+import com.paul.startclass.repository.StudentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Массовое изменение имен без Hibernate: SELECT ID, NAME и UPDATE ... WHERE ID = ? пачками через addBatch.
+// SELECT сразу отсекает строки, которые менять не нужно (NameTransform.sqlCondition).
+// Нет контекста персистентности, снимков сущностей и dirty checking, в памяти только текущая пачка
+// (два массива по batch-size элементов), поэтому куча не растет с размером таблицы.
+// Диапазоны ID (range-size) выполняются параллельно движком, каждый в своей транзакции. Внутри диапазона
+// строки читаются keyset-страницами и обновляются по возрастанию ID, диапазоны не пересекаются,
+// поэтому параллельные транзакции берут блокировки строк в одном порядке и не дают deadlock.
+// Транзакцию открывает движок через JpaTransactionManager, JdbcTemplate работает на ее соединении
+@Service
+public class StudentBulkUpdateService {
+
+    static final String SELECT_PAGE = "SELECT ID, NAME FROM sova.students WHERE ID > ? AND ID <= ? AND %s ORDER BY ID LIMIT ?";
+    static final String UPDATE_NAME = "UPDATE sova.students SET NAME = ? WHERE ID = ?";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    BatchProcessingEngine<Student> batchProcessingEngine;
+
+    @Autowired
+    BatchExecutor batchExecutor;
+
+    @Autowired
+    BatchMetrics batchMetrics;
+
+    private final int batchSize;
+    private final int rangeSize;
+
+    public StudentBulkUpdateService(@Value("${batch.bulk.batch-size:1000}") int batchSize,
+                                    @Value("${batch.bulk.range-size:10000}") int rangeSize) {
+        this.batchSize = batchSize;
+        this.rangeSize = rangeSize;
+    }
+
+    public BatchResult rename(String operation, NameTransform transform) {
+        return batchProcessingEngine.processByIdRange(operation + " (bulk)",
+                studentRepository.findMinId(), studentRepository.findMaxId(), rangeSize,
+                batchExecutor.executor(), range -> renameRange(range, transform),
+                batchMetrics.chunkListener(StudentPrefixService.Strategy.BULK.tag()));
+    }
+
+    private int renameRange(IdRange range, NameTransform transform) {
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> renameRange(connection, range, transform));
+    }
+
+    private int renameRange(Connection connection, IdRange range, NameTransform transform) throws SQLException {
+        int[] ids = new int[batchSize];
+        String[] names = new String[batchSize];
+        int rows = 0;
+        try (PreparedStatement select = connection.prepareStatement(SELECT_PAGE.formatted(transform.sqlCondition()));
+             PreparedStatement update = connection.prepareStatement(UPDATE_NAME)) {
+            // fromId - 1: нижняя граница диапазона включительно, а keyset-условие строгое
+            long lastId = range.fromId() - 1L;
+            int size;
+            do {
+                size = readPage(select, lastId, range.toId(), transform.likePattern(), ids, names);
+                for (int i = 0; i < size; i++) {
+                    update.setString(1, transform.apply(names[i]));
+                    update.setInt(2, ids[i]);
+                    update.addBatch();
+                }
+                if (size > 0) {
+                    rows += updated(update.executeBatch());
+                    lastId = ids[size - 1];
+                }
+            } while (size == batchSize);
+        }
+        return rows;
+    }
+
+    private int readPage(PreparedStatement select, long afterId, int toId, String likePattern,
+                         int[] ids, String[] names) throws SQLException {
+        select.setLong(1, afterId);
+        select.setInt(2, toId);
+        select.setString(3, likePattern);
+        select.setInt(4, batchSize);
+        int size = 0;
+        try (ResultSet resultSet = select.executeQuery()) {
+            while (resultSet.next()) {
+                ids[size] = resultSet.getInt(1);
+                names[size] = resultSet.getString(2);
+                size++;
+            }
+        }
+        return size;
+    }
+
+    // С rewriteBatchedStatements MySQL возвращает SUCCESS_NO_INFO вместо числа строк
+    private int updated(int[] counts) {
+        int rows = 0;
+        for (int count : counts) {
+            rows += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,134 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.models.Student;
+import com.paul.startclass.repository.StudentRepository;
+import com.paul.startclass.services.BatchProcessingEngine.ChunkListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fork/Join: диапазон ID рекурсивно делится пополам до порога, листья обрабатываются параллельно.
+// Если ID распределены неравномерно, простаивающие потоки забирают задачи у занятых (work-stealing).
+// Пул свой, а не ForkJoinPool.commonPool(), чтобы блокирующий JDBC не занимал общие потоки,
+// потоков не больше, чем соединений для чанков. Листья выполняются в Scope движка: ошибка листа или срок
+// операции отменяют остальные листья, результат собирается, когда завершились все.
+@Service
+public class StudentForkJoinService {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentForkJoinService.class);
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    BatchProcessingEngine<Student> batchProcessingEngine;
+
+    private final ForkJoinPool forkJoinPool;
+
+    @Autowired
+    public StudentForkJoinService(MeterRegistry meterRegistry, ConnectionPoolScheduler poolScheduler,
+                                  @Value("${batch.fork-join.parallelism:8}") int parallelism) {
+        this.forkJoinPool = new ForkJoinPool(poolScheduler.workers(parallelism));
+        new ExecutorServiceMetrics(forkJoinPool, "fork_join", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    public BatchResult addPrefix(int threshold, ChunkListener listener) {
+        Integer minId = studentRepository.findMinId();
+        Integer maxId = studentRepository.findMaxId();
+        LongAdder scanned = new LongAdder();
+        BatchProcessingEngine<Student>.Scope scope = batchProcessingEngine.openScope(listener);
+        CompletableFuture<LeafStats> root = minId == null ? CompletableFuture.completedFuture(LeafStats.EMPTY)
+                : scope.track(CompletableFuture.supplyAsync(
+                        () -> new RangeTask(minId, maxId, threshold, scope, scanned).invoke(), forkJoinPool));
+
+        BatchResult result = scope.join("add-prefix (fork_join)").withRowsScanned(scanned.sum());
+        log.info("{}, {}, steals = {}", result, root.join(), forkJoinPool.getStealCount());
+        return result;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        forkJoinPool.shutdown();
+    }
+
+    // Лист выполняется как обычный чанк движка: допуск лимитером, своя транзакция, уведомления listener.
+    // Ошибка листа не бросается вверх по дереву, ее собирает scope
+    private int addPrefix(IdRange range, BatchProcessingEngine<Student>.Scope scope, LongAdder scanned) {
+        return scope.call(range, chunk -> addPrefix(chunk, scanned));
+    }
+
+    // Dirty checking пишет только строки, которым префикс действительно добавлен
+    private int addPrefix(IdRange range, LongAdder scanned) {
+        List<Student> students = studentRepository.findByIdBetween(range.fromId(), range.toId());
+        scanned.add(students.size());
+        int rows = 0;
+        for (Student student : students) {
+            if (NameTransform.ADD_PREFIX.needsChange(student.getName())) {
+                student.setName(NameTransform.ADD_PREFIX.apply(student.getName()));
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    class RangeTask extends RecursiveTask<LeafStats> {
+        private final int fromId;
+        private final int toId;
+        private final int threshold;
+        private final BatchProcessingEngine<Student>.Scope scope;
+        private final LongAdder scanned;
+
+        RangeTask(int fromId, int toId, int threshold, BatchProcessingEngine<Student>.Scope scope, LongAdder scanned) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.threshold = threshold;
+            this.scope = scope;
+            this.scanned = scanned;
+        }
+
+        @Override
+        protected LeafStats compute() {
+            if ((long) toId - fromId < threshold) {
+                long startTime = System.nanoTime();
+                int rows = addPrefix(new IdRange(fromId, toId), scope, scanned);
+                long elapsed = System.nanoTime() - startTime;
+                return new LeafStats(rows, 1, elapsed, elapsed);
+            }
+            int middle = (int) (((long) fromId + toId) / 2);
+            RangeTask left = new RangeTask(fromId, middle, threshold, scope, scanned);
+            RangeTask right = new RangeTask(middle + 1, toId, threshold, scope, scanned);
+            left.fork();
+            LeafStats rightStats = right.compute();
+            return left.join().plus(rightStats);
+        }
+    }
+
+    // Сумма по листьям: строки, количество листьев, суммарное и максимальное время листа
+    record LeafStats(long rows, int leaves, long busyNanos, long maxLeafNanos) {
+        static final LeafStats EMPTY = new LeafStats(0, 0, 0, 0);
+
+        LeafStats plus(LeafStats other) {
+            return new LeafStats(rows + other.rows, leaves + other.leaves,
+                    busyNanos + other.busyNanos, Math.max(maxLeafNanos, other.maxLeafNanos));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("leaves = %d, busy = %d ms, max leaf = %d ms",
+                    leaves, TimeUnit.NANOSECONDS.toMillis(busyNanos), TimeUnit.NANOSECONDS.toMillis(maxLeafNanos));
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.models.Student;
+import com.paul.startclass.repository.StudentRepository;
+import com.paul.startclass.services.BatchProcessingEngine.ChunkListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+// Конвейер чтение -> преобразование -> запись: пока писатели сохраняют одни страницы,
+// читатель уже выбирает следующие, и обращения к БД на чтение и запись идут одновременно.
+// Стадии соединены ограниченными очередями BoundedRingQueue: если писатели не успевают,
+// очередь заполняется и читатель ждет, поэтому в памяти не больше queue-capacity страниц на очередь.
+// Метрики: batch.pipeline.queue.depth (очередь read/transformed), batch.pipeline.stage.duration
+// (работа стадии над страницей), batch.pipeline.stage.wait (ожидание очереди), batch.pipeline.rows
+@Service
+public class StudentPipelineService {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentPipelineService.class);
+
+    // Маркер конца данных, сравнивается по ссылке
+    private static final List<Student> END = List.of();
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    BatchProcessingEngine<Student> batchProcessingEngine;
+
+    private final MeterRegistry meterRegistry;
+    private final int transformers;
+    private final int writers;
+    private final int queueCapacity;
+    private final Set<Pipeline> activePipelines = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public StudentPipelineService(MeterRegistry meterRegistry, ConnectionPoolScheduler poolScheduler,
+                                  @Value("${batch.pipeline.transformers:1}") int transformers,
+                                  @Value("${batch.pipeline.writers:4}") int writers,
+                                  @Value("${batch.pipeline.queue-capacity:8}") int queueCapacity) {
+        this.meterRegistry = meterRegistry;
+        this.transformers = transformers;
+        // у каждого писателя свое соединение на всю операцию
+        this.writers = poolScheduler.workers(writers);
+        this.queueCapacity = queueCapacity;
+        queueDepth("read", pipeline -> pipeline.read.size());
+        queueDepth("transformed", pipeline -> pipeline.transformed.size());
+    }
+
+    public BatchResult addPrefix(int pageSize, ChunkListener listener) {
+        Pipeline pipeline = new Pipeline(pageSize, listener);
+        activePipelines.add(pipeline);
+        try {
+            BatchResult result = pipeline.run("add-prefix (pipeline)");
+            log.info("{}, {}", result, pipeline.stats());
+            return result;
+        } finally {
+            activePipelines.remove(pipeline);
+        }
+    }
+
+    // Глубина очереди суммируется по всем идущим сейчас конвейерам
+    private void queueDepth(String queue, ToDoubleFunction<Pipeline> depth) {
+        Gauge.builder("batch.pipeline.queue.depth", activePipelines, pipelines -> pipelines.stream().mapToDouble(depth).sum())
+                .description("Pages waiting in a pipeline queue")
+                .tag("queue", queue)
+                .register(meterRegistry);
+    }
+
+    // Писатель перечитывает страницу по диапазону ID уже в своей транзакции и переносит новые имена:
+    // прочитанные читателем сущности отсоединены, а merge выбирал бы каждую строку отдельным запросом
+    private int write(List<Student> page) {
+        Map<Integer, String> names = page.stream().collect(Collectors.toMap(Student::getId, Student::getName));
+        List<Student> students = studentRepository.findByIdBetween(page.get(0).getId(), page.get(page.size() - 1).getId());
+        int rows = 0;
+        for (Student student : students) {
+            String name = names.get(student.getId());
+            if (name != null) {
+                student.setName(name);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private class Pipeline {
+        private final int pageSize;
+        private final BatchProcessingEngine<Student>.Scope scope;
+        private final BoundedRingQueue<List<Student>> read = new BoundedRingQueue<>(queueCapacity);
+        private final BoundedRingQueue<List<Student>> transformed = new BoundedRingQueue<>(queueCapacity);
+        private final AtomicInteger transformersLeft = new AtomicInteger(transformers);
+        private final Stage readStage = new Stage("read");
+        private final Stage transformStage = new Stage("transform");
+        private final Stage writeStage = new Stage("write");
+        private ExecutorService executorService;
+
+        Pipeline(int pageSize, ChunkListener listener) {
+            this.pageSize = pageSize;
+            this.scope = batchProcessingEngine.openScope(listener);
+        }
+
+        // Стадии и чанки писателей живут в scope движка: join() ждет все стадии, а при ошибке
+        // бросает BatchFailedException с результатом каждой записанной страницы
+        BatchResult run(String operation) {
+            try (ExecutorService executorService = Executors.newFixedThreadPool(1 + transformers + writers,
+                    new CustomizableThreadFactory("pipeline-"))) {
+                this.executorService = executorService;
+                scope.onAbort(executorService::shutdownNow);
+                start(this::readPages);
+                for (int i = 0; i < transformers; i++) {
+                    start(this::transformPages);
+                }
+                for (int i = 0; i < writers; i++) {
+                    start(this::writePages);
+                }
+                return scope.join(operation).withRowsScanned(readStage.rows.sum());
+            }
+        }
+
+        // Первая ошибка любой стадии или чанка, срок операции или отмена задачи останавливают весь конвейер:
+        // остальные потоки прерываются в ожидании очереди или на следующей странице
+        private void start(StageBody body) {
+            scope.track(CompletableFuture.runAsync(() -> {
+                try {
+                    body.run();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, executorService));
+        }
+
+        // Читатель: страницы по ключу (id > последний id), каждая выборка в своей короткой транзакции
+        private void readPages() throws InterruptedException {
+            Iterator<List<Student>> pages = studentRepository.keysetPages(pageSize);
+            while (running()) {
+                long startTime = System.nanoTime();
+                if (!pages.hasNext()) {
+                    break;
+                }
+                List<Student> page = pages.next();
+                readStage.worked(page.size(), System.nanoTime() - startTime);
+                readStage.waited(read.put(page));
+            }
+            for (int i = 0; i < transformers; i++) {
+                read.put(END);
+            }
+        }
+
+        // Последний завершившийся преобразователь передает маркер конца каждому писателю.
+        // Писателям уходят только измененные строки, страница, где менять нечего, дальше не идет
+        private void transformPages() throws InterruptedException {
+            while (running()) {
+                List<Student> page = take(read, transformStage);
+                if (page == END) {
+                    break;
+                }
+                long startTime = System.nanoTime();
+                List<Student> changed = page.stream()
+                        .filter(student -> NameTransform.ADD_PREFIX.needsChange(student.getName()))
+                        .toList();
+                changed.forEach(student -> student.setName(NameTransform.ADD_PREFIX.apply(student.getName())));
+                transformStage.worked(changed.size(), System.nanoTime() - startTime);
+                if (!changed.isEmpty()) {
+                    transformStage.waited(transformed.put(changed));
+                }
+            }
+            if (transformersLeft.decrementAndGet() == 0) {
+                for (int i = 0; i < writers; i++) {
+                    transformed.put(END);
+                }
+            }
+        }
+
+        // Писатель: страница - обычный чанк движка (лимитер, своя транзакция, listener, batch update при flush).
+        // Ошибку чанка scope не бросает, а отменяет конвейер, running() после этого false
+        private void writePages() throws InterruptedException {
+            while (running()) {
+                List<Student> page = take(transformed, writeStage);
+                if (page == END) {
+                    break;
+                }
+                long startTime = System.nanoTime();
+                int rows = scope.call(page, StudentPipelineService.this::write);
+                writeStage.worked(rows, System.nanoTime() - startTime);
+            }
+        }
+
+        private List<Student> take(BoundedRingQueue<List<Student>> queue, Stage stage) throws InterruptedException {
+            long startTime = System.nanoTime();
+            List<Student> page = queue.take();
+            stage.waited(System.nanoTime() - startTime);
+            return page;
+        }
+
+        // Флаг прерывания может сбросить listener после чанка (BatchJob.chunkStopped),
+        // поэтому стадии дополнительно проверяют, не отменен ли конвейер
+        private boolean running() {
+            return scope.active();
+        }
+
+        String stats() {
+            return readStage + ", " + transformStage + ", " + writeStage;
+        }
+    }
+
+    // Счетчики одной стадии в пределах запуска и ее метрики в реестре
+    private class Stage {
+        private final String name;
+        private final LongAdder pages = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final Timer duration;
+        private final Timer wait;
+        private final Counter rowsCounter;
+
+        Stage(String name) {
+            this.name = name;
+            this.duration = Timer.builder("batch.pipeline.stage.duration")
+                    .description("Time a pipeline stage spent on one page")
+                    .tag("stage", name)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+            this.wait = Timer.builder("batch.pipeline.stage.wait")
+                    .description("Time a pipeline stage waited on a full or empty queue")
+                    .tag("stage", name)
+                    .register(meterRegistry);
+            this.rowsCounter = Counter.builder("batch.pipeline.rows")
+                    .tag("stage", name)
+                    .register(meterRegistry);
+        }
+
+        void worked(int pageRows, long elapsedNanos) {
+            pages.increment();
+            rows.add(pageRows);
+            busyNanos.add(elapsedNanos);
+            duration.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            rowsCounter.increment(pageRows);
+        }
+
+        void waited(long elapsedNanos) {
+            waitNanos.add(elapsedNanos);
+            wait.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: pages = %d, busy = %d ms, wait = %d ms", name, pages.sum(),
+                    TimeUnit.NANOSECONDS.toMillis(busyNanos.sum()), TimeUnit.NANOSECONDS.toMillis(waitNanos.sum()));
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws Exception;
+    }
+}
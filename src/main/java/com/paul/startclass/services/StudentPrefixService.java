@@ -0,0 +1,141 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.models.Student;
+import com.paul.startclass.repository.StudentRepository;
+import com.paul.startclass.services.BatchResult.ChunkOutcome;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Добавление/удаление префикса двумя способами:
+// ENTITY - читаем сущности, меняем имя в Java и сохраняем каждую обратно;
+// PUSHDOWN - отдаем работу БД: UPDATE по диапазонам ID, диапазоны выполняются параллельно;
+// BULK - имена меняются в Java, но запись идет пачками JDBC без сущностей, см. StudentBulkUpdateService.
+@Service
+public class StudentPrefixService {
+
+    public static final String PREFIX = " prefix1";
+
+    static final int PUSHDOWN_RANGE_SIZE = 10000;
+    static final int ENTITY_PAGE_SIZE = 1000;
+
+    public enum Strategy {
+        ENTITY, PUSHDOWN, BULK;
+
+        // ENTITY выполняется в одном потоке, в метриках это стратегия single
+        public String tag() {
+            return this == ENTITY ? "single" : name().toLowerCase(Locale.ROOT);
+        }
+
+        public static Strategy of(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    BatchProcessingEngine<Student> batchProcessingEngine;
+
+    @Autowired
+    BatchExecutor batchExecutor;
+
+    @Autowired
+    BatchMetrics batchMetrics;
+
+    @Autowired
+    AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    StudentBulkUpdateService studentBulkUpdateService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public StudentPrefixService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Повторный запуск ничего не пишет: имена с префиксом пропускаются, см. NameTransform
+    public BatchResult addPrefix(Strategy strategy) {
+        NameTransform transform = NameTransform.ADD_PREFIX;
+        BatchResult result = switch (strategy) {
+            case ENTITY -> updateEntities("add-prefix", transform);
+            case PUSHDOWN -> updateInRanges("add-prefix", range -> studentRepository.appendToNameInRange(
+                    PREFIX, transform.likePattern(), range.fromId(), range.toId()));
+            case BULK -> studentBulkUpdateService.rename("add-prefix", transform);
+        };
+        batchMetrics.recordOperation(strategy.tag(), result);
+        return result;
+    }
+
+    public BatchResult removePrefix(Strategy strategy) {
+        NameTransform transform = NameTransform.REMOVE_PREFIX;
+        BatchResult result = switch (strategy) {
+            case ENTITY -> updateEntities("delete-prefix", transform);
+            case PUSHDOWN -> updateInRanges("delete-prefix", range -> studentRepository.removeFromNameInRange(
+                    PREFIX, transform.likePattern(), range.fromId(), range.toId()));
+            case BULK -> studentBulkUpdateService.rename("delete-prefix", transform);
+        };
+        batchMetrics.recordOperation(strategy.tag(), result);
+        return result;
+    }
+
+    // Keyset-страницы читаются и изменяются внутри транзакции: dirty checking отправляет UPDATE пачкой
+    // при коммите, после коммита страница освобождается, в памяти одновременно только одна страница.
+    // Меняются только строки, которым это нужно, остальные dirty checking не пишет
+    private BatchResult updateEntities(String operation, NameTransform transform) {
+        long startTime = System.nanoTime();
+        Iterator<List<Student>> pages = this.studentRepository.keysetPages(ENTITY_PAGE_SIZE);
+
+        AtomicLong scanned = new AtomicLong();
+        long rows = 0;
+        Integer pageRows;
+        while ((pageRows = transactionTemplate.execute(status -> renamePage(pages, transform, scanned, status))) != null) {
+            rows += pageRows;
+        }
+
+        return new BatchResult(operation + " (entity)", rows, System.nanoTime() - startTime)
+                .withRowsScanned(scanned.get());
+    }
+
+    private Integer renamePage(Iterator<List<Student>> pages, NameTransform transform, AtomicLong scanned,
+                               TransactionStatus status) {
+        if (!pages.hasNext()) {
+            return null;
+        }
+        concurrencyLimiter.admit();
+        long startTime = System.nanoTime();
+        ChunkOutcome.Status outcome = ChunkOutcome.Status.FAILED;
+        List<Student> changed = List.of();
+        try {
+            List<Student> page = pages.next();
+            scanned.addAndGet(page.size());
+            changed = page.stream().filter(student -> transform.needsChange(student.getName())).toList();
+            changed.forEach(student -> student.setName(transform.apply(student.getName())));
+            status.flush();
+            outcome = ChunkOutcome.Status.COMPLETED;
+        } finally {
+            if (outcome == ChunkOutcome.Status.FAILED && Thread.currentThread().isInterrupted()) {
+                outcome = ChunkOutcome.Status.CANCELLED;
+            }
+            concurrencyLimiter.release(changed.size(), System.nanoTime() - startTime, outcome);
+        }
+        batchMetrics.recordChunk(Strategy.ENTITY.tag(), changed.size(), System.nanoTime() - startTime);
+        return changed.size();
+    }
+
+    private BatchResult updateInRanges(String operation, BatchProcessingEngine.ChunkWork<IdRange> update) {
+        return batchProcessingEngine.processByIdRange(operation + " (pushdown)",
+                studentRepository.findMinId(), studentRepository.findMaxId(), PUSHDOWN_RANGE_SIZE,
+                batchExecutor.executor(), update, batchMetrics.chunkListener(Strategy.PUSHDOWN.tag()));
+    }
+}
@@ -0,0 +1,31 @@
+package com.paul.startclass.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Заполнение пустой таблицы students при старте, включается свойством batch.seed.students (профиль embedded)
+@Component
+@ConditionalOnProperty(name = "batch.seed.students")
+public class StudentSeedRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentSeedRunner.class);
+
+    @Autowired
+    StudentSeeder studentSeeder;
+
+    @Value("${batch.seed.students}")
+    int students;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (students > 0 && studentSeeder.isEmpty()) {
+            log.info("Seeding {}", studentSeeder.seed(students, StudentSeeder.DEFAULT_BATCH_SIZE));
+        }
+    }
+}
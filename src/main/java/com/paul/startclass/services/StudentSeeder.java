@@ -0,0 +1,59 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.models.Student;
+import com.paul.startclass.repository.StudentRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Массовое наполнение таблицы students.
+// Каждая пачка пишется в своей транзакции: persist -> flush (JDBC batch) -> clear,
+// поэтому контекст персистентности не растет и память не зависит от количества строк.
+@Service
+public class StudentSeeder {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public StudentSeeder(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isEmpty() {
+        return studentRepository.count() == 0;
+    }
+
+    public BatchResult seed(int count, int batchSize) {
+        if (count < 0 || batchSize < 1) {
+            throw new IllegalArgumentException("count must be >= 0 and batchSize >= 1");
+        }
+        long startTime = System.nanoTime();
+
+        for (int from = 0; from < count; from += batchSize) {
+            int first = from;
+            int last = Math.min(from + batchSize, count);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = first; i < last; i++) {
+                    Student student = new Student();
+                    student.setName("Student" + i);
+                    entityManager.persist(student);
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+
+        return new BatchResult("generate-rows", count, System.nanoTime() - startTime);
+    }
+}
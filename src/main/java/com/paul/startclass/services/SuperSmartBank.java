@@ -0,0 +1,46 @@
+package com.paul.startclass.services;
+
+// Решение deadlock через tryLock: если второй счет занят, первый отпускается и попытка повторяется
+public class SuperSmartBank {
+
+    private final long pauseMillis;
+    private final boolean verbose;
+
+    public SuperSmartBank() {
+        this(100, true);
+    }
+
+    public SuperSmartBank(long pauseMillis, boolean verbose) {
+        this.pauseMillis = pauseMillis;
+        this.verbose = verbose;
+    }
+
+    public void transferMoney(Account fromAccount, Account toAccount, int amount) throws InterruptedException {
+        while(true) {
+            if (fromAccount.lock.tryLock()) {
+                if (pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+                if (toAccount.lock.tryLock()) {
+                    try {
+                        //do something
+                        fromAccount.count = fromAccount.count - amount;
+                        toAccount.count = toAccount.count + amount;
+                        if (verbose) {
+                            System.out.println(Thread.currentThread().getName()+" From Smart Bank Operation's completed");
+                        }
+                        break;
+                    } finally {
+                        toAccount.lock.unlock();
+                        fromAccount.lock.unlock();
+                    }
+                } else {
+                    fromAccount.lock.unlock();
+                }
+            }
+            if (verbose) {
+                System.out.println("Attempt");
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+-- Несколько инфоблоков в духе Bitrix, таблица students заполняется StudentSeedRunner
+MERGE INTO sova.b_iblock (ID, IBLOCK_TYPE_ID, LID, CODE, NAME, ACTIVE, SORT, LIST_PAGE_URL, DETAIL_PAGE_URL, DESCRIPTION, SECTIONS_NAME, SECTION_NAME, ELEMENTS_NAME, ELEMENT_NAME)
+    KEY (ID) VALUES
+    (1, 'news', 's1', 'news', 'Новости', 'Y', 100, '#SITE_DIR#/news/', '#SITE_DIR#/news/#ELEMENT_CODE#/', 'Новости компании', 'Разделы', 'Раздел', 'Новости', 'Новость'),
+    (2, 'catalog', 's1', 'products', 'Товары', 'Y', 200, '#SITE_DIR#/catalog/', '#SITE_DIR#/catalog/#SECTION_CODE#/#ELEMENT_CODE#/', 'Каталог товаров', 'Разделы', 'Раздел', 'Товары', 'Товар'),
+    (3, 'catalog', 's1', 'offers', 'Торговые предложения', 'Y', 300, NULL, NULL, 'SKU для каталога товаров', 'Разделы', 'Раздел', 'Предложения', 'Предложение'),
+    (4, 'services', 's1', 'faq', 'Вопросы и ответы', 'Y', 400, '#SITE_DIR#/faq/', NULL, NULL, 'Разделы', 'Раздел', 'Вопросы', 'Вопрос'),
+    (5, 'services', 's1', 'archive', 'Архив', 'N', 500, NULL, NULL, 'Старые материалы', NULL, NULL, NULL, NULL);
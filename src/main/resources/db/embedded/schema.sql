@@ -0,0 +1,83 @@
+-- Схема для профиля embedded (H2 в режиме совместимости с MySQL)
+CREATE SCHEMA IF NOT EXISTS sova;
+
+CREATE SEQUENCE IF NOT EXISTS Student_SEQ START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS sova.students
+(
+    ID   INT          NOT NULL,
+    NAME VARCHAR(255) NULL,
+    PRIMARY KEY (ID)
+);
+
+CREATE TABLE IF NOT EXISTS sova.accounts
+(
+    ID      INT    NOT NULL,
+    BALANCE BIGINT NOT NULL,
+    VERSION BIGINT NOT NULL,
+    PRIMARY KEY (ID)
+);
+
+CREATE TABLE IF NOT EXISTS sova.b_iblock
+(
+    ID                 INT           NOT NULL,
+    TIMESTAMP_X        TIMESTAMP     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    IBLOCK_TYPE_ID     VARCHAR(50)   NOT NULL,
+    LID                VARCHAR(2)    NOT NULL,
+    CODE               VARCHAR(50)   NULL,
+    API_CODE           VARCHAR(50)   NULL,
+    NAME               VARCHAR(255)  NOT NULL,
+    ACTIVE             VARCHAR(1)    NOT NULL DEFAULT 'Y',
+    SORT               INT           NOT NULL DEFAULT 500,
+    LIST_PAGE_URL      VARCHAR(255)  NULL,
+    DETAIL_PAGE_URL    VARCHAR(255)  NULL,
+    SECTION_PAGE_URL   VARCHAR(255)  NULL,
+    CANONICAL_PAGE_URL VARCHAR(255)  NULL,
+    PICTURE            INT           NULL,
+    DESCRIPTION        VARCHAR(65535) NULL,
+    DESCRIPTION_TYPE   VARCHAR(4)    NOT NULL DEFAULT 'text',
+    RSS_TTL            INT           NOT NULL DEFAULT 24,
+    RSS_ACTIVE         VARCHAR(1)    NOT NULL DEFAULT 'Y',
+    RSS_FILE_ACTIVE    VARCHAR(1)    NOT NULL DEFAULT 'N',
+    RSS_FILE_LIMIT     INT           NULL,
+    RSS_FILE_DAYS      INT           NULL,
+    RSS_YANDEX_ACTIVE  VARCHAR(1)    NOT NULL DEFAULT 'N',
+    XML_ID             VARCHAR(255)  NULL,
+    TMP_ID             VARCHAR(40)   NULL,
+    INDEX_ELEMENT      VARCHAR(1)    NOT NULL DEFAULT 'Y',
+    INDEX_SECTION      VARCHAR(1)    NOT NULL DEFAULT 'N',
+    WORKFLOW           VARCHAR(1)    NOT NULL DEFAULT 'Y',
+    BIZPROC            VARCHAR(1)    NOT NULL DEFAULT 'N',
+    SECTION_CHOOSER    VARCHAR(1)    NULL,
+    LIST_MODE          VARCHAR(1)    NULL,
+    RIGHTS_MODE        VARCHAR(1)    NULL,
+    SECTION_PROPERTY   VARCHAR(1)    NULL,
+    PROPERTY_INDEX     VARCHAR(1)    NULL,
+    VERSION            INT           NOT NULL DEFAULT 1,
+    LAST_CONV_ELEMENT  INT           NOT NULL DEFAULT 0,
+    SOCNET_GROUP_ID    INT           NULL,
+    EDIT_FILE_BEFORE   VARCHAR(255)  NULL,
+    EDIT_FILE_AFTER    VARCHAR(255)  NULL,
+    SECTIONS_NAME      VARCHAR(100)  NULL,
+    SECTION_NAME       VARCHAR(100)  NULL,
+    ELEMENTS_NAME      VARCHAR(100)  NULL,
+    ELEMENT_NAME       VARCHAR(100)  NULL,
+    PRIMARY KEY (ID)
+);
+
+CREATE TABLE IF NOT EXISTS sova.batch_chunks
+(
+    ID           VARCHAR(64)  NOT NULL,
+    JOB_ID       VARCHAR(36)  NOT NULL,
+    CHUNK_NO     INT          NOT NULL,
+    FROM_ID      INT          NOT NULL,
+    TO_ID        INT          NOT NULL,
+    STATUS       VARCHAR(16)  NOT NULL,
+    OWNER        VARCHAR(128) NULL,
+    HEARTBEAT_AT TIMESTAMP    NULL,
+    ATTEMPTS     INT          NOT NULL,
+    ROWS_WRITTEN INT          NOT NULL,
+    PRIMARY KEY (ID)
+);
+
+CREATE INDEX IF NOT EXISTS sova.IX_BATCH_CHUNKS_STATUS ON sova.batch_chunks (STATUS, HEARTBEAT_AT);
@@ -0,0 +1,20 @@
+package com.paul.startclass.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class JobControllerTests {
+
+    @Test
+    void unknownTypeIsBadRequestListingModes() {
+        ResponseStatusException e = catchThrowableOfType(() -> new JobController().start("turbo"),
+                ResponseStatusException.class);
+
+        assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(e.getReason()).contains("turbo").contains("pool, semaphore, virtual");
+    }
+}
@@ -0,0 +1,168 @@
+package com.paul.startclass.repository;
+
+import com.paul.startclass.models.BIblock;
+import com.paul.startclass.models.BIblockHeader;
+import com.paul.startclass.models.BIblockSummary;
+import com.paul.startclass.services.BlockCacheWarmup;
+import jakarta.persistence.EntityManagerFactory;
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.ResourceType;
+import org.ehcache.xml.XmlConfiguration;
+import org.hibernate.Cache;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@ActiveProfiles("embedded")
+class BlockRepositoryTests {
+
+    @Autowired
+    BlockRepository blockRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    BlockCacheWarmup blockCacheWarmup;
+
+    Statistics statistics;
+
+    // Прогрев кэша идет в фоне после старта: ждем его, чтобы он не менял статистику посреди теста,
+    // и начинаем каждый тест с пустого кэша
+    @BeforeEach
+    void emptyCache() throws InterruptedException {
+        for (int i = 0; i < 300 && !Status.UP.equals(blockCacheWarmup.health().getStatus()); i++) {
+            Thread.sleep(100);
+        }
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.getCache().unwrap(Cache.class).evictQueryRegion(BlockRepository.QUERY_CACHE_REGION);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void projectionsReadListColumns() {
+        List<BIblockSummary> summaries = blockRepository.findAllSummaries();
+        assertThat(summaries).extracting(BIblockSummary::id).containsExactly(1, 2, 3, 4, 5);
+        assertThat(summaries.get(0)).isEqualTo(new BIblockSummary(1, "news", "Новости", "Y"));
+
+        assertThat(blockRepository.findByActiveOrderBySortAsc("Y"))
+                .extracting(BIblockHeader::getId, BIblockHeader::getIblockTypeId)
+                .first().isEqualTo(tuple(1, "news"));
+        assertThat(blockRepository.findByActiveOrderBySortAsc("Y")).hasSize(4);
+    }
+
+    @Test
+    void descriptionIsLoadedOnlyWhenRead() {
+        transactionTemplate.executeWithoutResult(status -> {
+            BIblock block = blockRepository.findById(1).orElseThrow();
+            assertThat(Hibernate.isPropertyInitialized(block, "description")).isFalse();
+            assertThat(Hibernate.isPropertyInitialized(block, "name")).isTrue();
+
+            assertThat(block.getDescription()).isEqualTo("Новости компании");
+            assertThat(Hibernate.isPropertyInitialized(block, "description")).isTrue();
+        });
+    }
+
+    @Test
+    void equalityDoesNotLoadDescription() {
+        transactionTemplate.executeWithoutResult(status -> {
+            BIblock block = blockRepository.findById(2).orElseThrow();
+            BIblock other = new BIblock();
+            other.setId(2);
+
+            Set<BIblock> blocks = new HashSet<>();
+            blocks.add(block);
+            assertThat(blocks).contains(other);
+            assertThat(block).isEqualTo(other).hasSameHashCodeAs(other);
+            assertThat(Hibernate.isPropertyInitialized(block, "description")).isFalse();
+        });
+    }
+
+    @Test
+    void repeatedProjectionQueryIsServedFromQueryCache() {
+        blockRepository.findAllSummaries();
+        assertThat(statistics.getQueryCacheMissCount()).isEqualTo(1);
+        assertThat(statistics.getQueryCacheHitCount()).isZero();
+
+        blockRepository.findAllSummaries();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void repeatedFindByIdIsServedFromEntityCache() {
+        blockRepository.findById(3).orElseThrow();
+        assertThat(statistics.getSecondLevelCacheMissCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCachePutCount()).isEqualTo(1);
+
+        blockRepository.findById(3).orElseThrow();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+    }
+
+    @Test
+    void saveThroughRepositoryInvalidatesCachedQueries() {
+        String name = blockRepository.findSummaryById(5).orElseThrow().name();
+        blockRepository.findAllSummaries();
+        try {
+            rename(5, "Архив 2");
+            long missesBefore = statistics.getQueryCacheMissCount();
+            long hitsBefore = statistics.getQueryCacheHitCount();
+
+            List<BIblockSummary> summaries = blockRepository.findAllSummaries();
+
+            assertThat(statistics.getQueryCacheMissCount()).isEqualTo(missesBefore + 1);
+            assertThat(statistics.getQueryCacheHitCount()).isEqualTo(hitsBefore);
+            assertThat(summaries).contains(new BIblockSummary(5, "archive", "Архив 2", "N"));
+            assertThat(blockRepository.findById(5).orElseThrow().getName()).isEqualTo("Архив 2");
+        } finally {
+            rename(5, name);
+        }
+    }
+
+    @Test
+    void cacheRegionsAreBoundedAndExpire() {
+        XmlConfiguration configuration = new XmlConfiguration(getClass().getResource("/ehcache.xml"));
+
+        CacheConfiguration<?, ?> entities = configuration.getCacheConfigurations().get("b_iblock");
+        assertThat(entities.getResourcePools().getPoolForResource(ResourceType.Core.HEAP).getSize()).isEqualTo(1000);
+        assertThat(expiry(entities)).isEqualTo(Duration.ofMinutes(10));
+
+        CacheConfiguration<?, ?> queries = configuration.getCacheConfigurations().get(BlockRepository.QUERY_CACHE_REGION);
+        assertThat(queries.getResourcePools().getPoolForResource(ResourceType.Core.HEAP).getSize()).isEqualTo(500);
+        assertThat(expiry(queries)).isEqualTo(Duration.ofMinutes(10));
+    }
+
+    private void rename(int id, String name) {
+        transactionTemplate.executeWithoutResult(status -> {
+            BIblock block = blockRepository.findById(id).orElseThrow();
+            block.setName(name);
+            blockRepository.save(block);
+        });
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Duration expiry(CacheConfiguration configuration) {
+        return configuration.getExpiryPolicy().getExpiryForCreation(1, "value");
+    }
+}
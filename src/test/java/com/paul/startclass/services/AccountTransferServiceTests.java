@@ -0,0 +1,50 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.repository.BankAccountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+@SpringBootTest
+@ActiveProfiles("embedded")
+class AccountTransferServiceTests {
+
+    @Autowired
+    AccountTransferService accountTransferService;
+
+    @Autowired
+    BankAccountRepository bankAccountRepository;
+
+    @Test
+    void invalidLoadIsRejectedBeforeAnyWork() {
+        assertThatThrownBy(() -> accountTransferService.transferRandom(1, 1000, 10, 2, 1, 0.5))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("accounts = 1");
+        assertThatThrownBy(() -> accountTransferService.transferRandom(10, 1000, 10, 0, 1, 0.5))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("threads = 0");
+        assertThatThrownBy(() -> accountTransferService.transferRandom(10, 1000, 10, 2, 0, 0.5))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("hot = 0");
+        assertThatThrownBy(() -> accountTransferService.transferRandom(10, 1000, 10, 2, 1, 1.5))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("skew");
+        assertThatThrownBy(() -> accountTransferService.transferRandom(10, 1000, 10, 2, 1, Double.NaN))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("skew");
+    }
+
+    @Test
+    void singleHotAccountOrTwoAccountsStillFinish() {
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            // все отправители - счет 0, получатели - остальные счета
+            BatchResult hot = accountTransferService.transferRandom(10, 1000, 200, 2, 1, 1.0);
+            assertThat(hot.rowsAffected()).isPositive();
+
+            accountTransferService.transferRandom(2, 1000, 200, 2, 2, 1.0);
+            assertThat(bankAccountRepository.totalBalance()).isEqualTo(2000);
+        });
+    }
+}
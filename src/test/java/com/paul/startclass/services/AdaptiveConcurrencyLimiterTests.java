@@ -0,0 +1,194 @@
+package com.paul.startclass.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.paul.startclass.services.BatchResult.ChunkOutcome.Status.CANCELLED;
+import static com.paul.startclass.services.BatchResult.ChunkOutcome.Status.COMPLETED;
+import static com.paul.startclass.services.BatchResult.ChunkOutcome.Status.FAILED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTests {
+
+    // не Hikari: parallelism = 8, пул никогда не считается насыщенным
+    private final ConnectionPoolScheduler poolScheduler =
+            new ConnectionPoolScheduler(new DriverManagerDataSource(), new SimpleMeterRegistry(), 2, 1);
+
+    private AdaptiveConcurrencyLimiter limiter(int initial, int min, int max, double backoff) {
+        return new AdaptiveConcurrencyLimiter(new SimpleMeterRegistry(), poolScheduler, initial, min, max, 2.0, backoff);
+    }
+
+    @Test
+    void limitsAreCappedByPoolParallelism() {
+        assertThat(limiter(32, 1, 32, 0.9).getLimit()).isEqualTo(8);
+        assertThat(limiter(0, 3, 32, 0.9).getLimit()).isEqualTo(3);
+        assertThat(limiter(4, 16, 32, 0.9).getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    void limitGrowsByOneWhileHalfFullUpToMax() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 6, 0.9);
+
+        for (int round = 0; round < 10; round++) {
+            int limit = limiter.getLimit();
+            for (int i = 0; i < limit; i++) {
+                limiter.admit();
+            }
+            limiter.release(100, 100_000, COMPLETED);
+            assertThat(limiter.getLimit()).isEqualTo(Math.min(6, limit + 1));
+            for (int i = 1; i < limit; i++) {
+                limiter.release(100, 100_000, COMPLETED);
+            }
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(6);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void lightlyLoadedLimiterDoesNotGrow() {
+        AdaptiveConcurrencyLimiter limiter = limiter(6, 1, 8, 0.9);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.admit();
+            limiter.release(100, 100_000, COMPLETED);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(6);
+    }
+
+    @Test
+    void failureDecreasesLimitMultiplicativelyDownToMin() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 2, 8, 0.5);
+
+        limiter.admit();
+        limiter.release(0, 0, FAILED);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.admit();
+            limiter.release(0, 0, FAILED);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void cancelledChunksLeaveLimitUnchanged() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 1, 8, 0.9);
+
+        for (int i = 0; i < 7; i++) {
+            limiter.admit();
+        }
+        for (int i = 0; i < 7; i++) {
+            limiter.release(0, 1_000_000, CANCELLED);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(8);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void slowChunkDecreasesLimitOnlyAfterWarmup() {
+        AdaptiveConcurrencyLimiter limiter = limiter(8, 1, 8, 0.5);
+
+        limiter.admit();
+        limiter.release(100, 100_000, COMPLETED);
+        limiter.admit();
+        limiter.release(100, 10_000_000, COMPLETED);
+        assertThat(limiter.getLimit()).as("slow sample during warmup").isEqualTo(8);
+
+        limiter = limiter(8, 1, 8, 0.5);
+        for (int i = 0; i < AdaptiveConcurrencyLimiter.WARMUP_SAMPLES; i++) {
+            limiter.admit();
+            limiter.release(100, 100_000, COMPLETED);
+        }
+        limiter.admit();
+        limiter.release(100, 150_000, COMPLETED);
+        assertThat(limiter.getLimit()).as("within tolerance").isEqualTo(8);
+
+        limiter.admit();
+        limiter.release(100, 1_000_000, COMPLETED);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void chunkWithoutRowsLeavesLimitUnchanged() {
+        AdaptiveConcurrencyLimiter limiter = limiter(2, 1, 8, 0.5);
+
+        limiter.admit();
+        limiter.admit();
+        limiter.release(0, 1_000_000, COMPLETED);
+        limiter.release(0, 1_000_000, COMPLETED);
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void admitBlocksWhileFullAndResumesOnRelease() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, 0.9);
+        limiter.admit();
+
+        CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(limiter::admit);
+        Thread.sleep(200);
+        assertThat(waiting).isNotDone();
+
+        limiter.release(100, 100_000, COMPLETED);
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isGreaterThan(0);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void interruptWhileWaitingCancelsAndKeepsFlag() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, 0.9);
+        limiter.admit();
+
+        assertInterruptCancels(limiter);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void fixedAdmissionIgnoresLatencyAndFailures() throws Exception {
+        ChunkAdmission admission = ChunkAdmission.fixed(2);
+        admission.admit();
+        admission.admit();
+        admission.release(0, 0, FAILED);
+        admission.admit();
+
+        CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(admission::admit);
+        Thread.sleep(200);
+        assertThat(waiting).as("still two permits after a failure").isNotDone();
+
+        admission.release(100, 10_000_000, COMPLETED);
+        waiting.get(5, TimeUnit.SECONDS);
+
+        assertInterruptCancels(admission);
+    }
+
+    private static void assertInterruptCancels(ChunkAdmission admission) throws InterruptedException {
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread waiter = new Thread(() -> {
+            try {
+                admission.admit();
+            } catch (Throwable e) {
+                error.set(e);
+                interrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        waiter.start();
+        Thread.sleep(100);
+        waiter.interrupt();
+        waiter.join(5000);
+
+        assertThat(error.get()).isInstanceOf(CancellationException.class);
+        assertThat(interrupted).isTrue();
+    }
+}
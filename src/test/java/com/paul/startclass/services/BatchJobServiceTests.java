@@ -0,0 +1,42 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.repository.StudentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchJobServiceTests {
+
+    private final BatchJobService batchJobService = new BatchJobService();
+
+    @AfterEach
+    void shutdown() {
+        batchJobService.shutdown();
+    }
+
+    @Test
+    void errorInCoordinatorStillFinishesJob() throws InterruptedException {
+        batchJobService.studentRepository = mock(StudentRepository.class);
+        when(batchJobService.studentRepository.countByNameNotLike(anyString())).thenReturn(100L);
+        batchJobService.studentBatchService = mock(StudentBatchService.class);
+        when(batchJobService.studentBatchService.chunkSize(ExecutionMode.POOL)).thenReturn(10);
+        when(batchJobService.studentBatchService.addPrefix(any(ExecutionMode.class), any()))
+                .thenThrow(new StackOverflowError("deep"));
+
+        BatchJob job = batchJobService.startAddPrefix(ExecutionMode.POOL);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (job.getState() == BatchJob.State.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(job.getState()).isEqualTo(BatchJob.State.FAILED);
+        assertThat(job.getError()).contains("StackOverflowError");
+    }
+}
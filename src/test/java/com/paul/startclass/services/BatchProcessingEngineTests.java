@@ -0,0 +1,161 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.services.BatchResult.ChunkOutcome;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+// Scope без БД: транзакции - заглушка, которая запоминает таймауты
+class BatchProcessingEngineTests {
+
+    private final RecordingTransactionManager transactionManager = new RecordingTransactionManager();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void joinCollectsEveryChunk() {
+        BatchResult result = engine(60).process("sum", List.of(1, 2, 3, 4, 5), executor, chunk -> chunk);
+
+        assertThat(result.rowsAffected()).isEqualTo(15);
+        assertThat(result.chunks()).isEqualTo(5);
+        assertThat(result.chunks(ChunkOutcome.Status.COMPLETED)).isEqualTo(5);
+        assertThat(result.chunkResults()).extracting(ChunkOutcome::index).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void firstFailureCancelsOtherChunks() {
+        List<Integer> chunks = IntStream.range(0, 20).boxed().toList();
+        BatchFailedException failure = catchThrowableOfType(() -> engine(60).process("fail-fast", chunks, executor, chunk -> {
+            if (chunk == 0) {
+                throw new IllegalStateException("broken chunk");
+            }
+            sleep(200);
+            return 1;
+        }), BatchFailedException.class);
+
+        assertThat(failure.getCause()).hasMessage("broken chunk");
+        BatchResult result = failure.getResult();
+        assertThat(result.chunks(ChunkOutcome.Status.FAILED)).isEqualTo(1);
+        assertThat(result.chunks(ChunkOutcome.Status.CANCELLED)).isPositive();
+        assertThat(result.rowsAffected()).isEqualTo(result.chunks(ChunkOutcome.Status.COMPLETED));
+        assertThat(result.chunkResults()).hasSize(chunks.size());
+    }
+
+    @Test
+    void onlyTheFailedChunkShrinksLimiter() {
+        List<Integer> chunks = IntStream.range(0, 20).boxed().toList();
+        BatchProcessingEngine<Integer> engine = engine(60);
+        assertThatThrownBy(() -> engine.process("fail-fast", chunks, executor, chunk -> {
+            if (chunk == 3) {
+                sleep(50);
+                throw new IllegalStateException("broken chunk");
+            }
+            sleep(10_000);
+            return 1;
+        })).isInstanceOf(BatchFailedException.class);
+
+        // 4 * 0.9: прерванные соседи лимит не уменьшают
+        assertThat(limiter.getLimit()).isEqualTo(3);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void deadlineStopsChunksAndBoundsTransactionTimeout() {
+        long startTime = System.nanoTime();
+        assertThatThrownBy(() -> engine(1).process("slow", List.of(1, 2, 3), executor, chunk -> {
+            sleep(10_000);
+            return 1;
+        })).isInstanceOf(BatchFailedException.class).hasCauseInstanceOf(TimeoutException.class);
+
+        assertThat(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime)).isLessThan(5);
+        assertThat(transactionManager.timeouts).isNotEmpty().containsOnly(1);
+        assertThat(limiter.getLimit()).as("deadline is not overload").isEqualTo(4);
+    }
+
+    @Test
+    void runChunkOutsideScopeHasNoTransactionTimeout() {
+        BatchProcessingEngine<Integer> engine = engine(60);
+        engine.runChunk(1, chunk -> chunk, BatchProcessingEngine.ChunkListener.NONE);
+
+        assertThat(transactionManager.timeouts).containsExactly(TransactionDefinition.TIMEOUT_DEFAULT);
+    }
+
+    @Test
+    void abortInterruptIsClearedAfterChunk() {
+        BatchProcessingEngine<Integer>.Scope scope = engine(60).openScope(BatchProcessingEngine.ChunkListener.NONE);
+        scope.call(1, chunk -> {
+            scope.abort(new CancellationException("stop"));
+            return 0;
+        });
+
+        assertThat(Thread.interrupted()).isFalse();
+    }
+
+    @Test
+    void callerInterruptSurvivesChunkRunInCallerThread() {
+        BatchProcessingEngine<Integer>.Scope scope = engine(60).openScope(BatchProcessingEngine.ChunkListener.NONE);
+        // прерывание от владельца потока, пока чанк идет в нем (CallerRunsPolicy)
+        scope.call(1, chunk -> {
+            Thread.currentThread().interrupt();
+            return 1;
+        });
+
+        assertThat(Thread.interrupted()).isTrue();
+    }
+
+    private BatchProcessingEngine<Integer> engine(long deadlineSeconds) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConnectionPoolScheduler poolScheduler = new ConnectionPoolScheduler(new DriverManagerDataSource(), meterRegistry, 2, 1);
+        limiter = new AdaptiveConcurrencyLimiter(meterRegistry, poolScheduler, 4, 1, 8, 2.0, 0.9);
+        return new BatchProcessingEngine<>(transactionManager, limiter, deadlineSeconds);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new CancellationException("Chunk interrupted");
+        }
+    }
+
+    static class RecordingTransactionManager implements PlatformTransactionManager {
+        final List<Integer> timeouts = new CopyOnWriteArrayList<>();
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            timeouts.add(definition.getTimeout());
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.paul.startclass.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.CompositeHealth;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthComponent;
+import org.springframework.boot.actuate.health.HealthEndpoint;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Группа readiness включает warmup (management.endpoint.health.group.readiness.include)
+@SpringBootTest
+@ActiveProfiles("embedded")
+class BlockCacheWarmupReadinessTests {
+
+    @Autowired
+    HealthEndpoint healthEndpoint;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void readinessBecomesUpAfterEveryWarmupPhase() throws InterruptedException {
+        HealthComponent readiness = healthEndpoint.healthForPath("readiness");
+        for (int i = 0; i < 300 && !Status.UP.equals(readiness.getStatus()); i++) {
+            Thread.sleep(100);
+            readiness = healthEndpoint.healthForPath("readiness");
+        }
+
+        assertThat(readiness.getStatus()).isEqualTo(Status.UP);
+        Health warmup = (Health) ((CompositeHealth) readiness).getComponents().get("warmup");
+        assertThat(warmup.getDetails()).containsEntry("state", BlockCacheWarmup.State.COMPLETED);
+        for (String phase : BlockCacheWarmupTests.PHASES) {
+            assertThat(meterRegistry.get("startup.warmup.phase").tag("phase", phase).timer().count()).as(phase).isPositive();
+        }
+    }
+}
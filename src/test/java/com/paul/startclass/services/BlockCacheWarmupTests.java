@@ -0,0 +1,112 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.models.BIblockSummary;
+import com.paul.startclass.repository.BlockRepository;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.core.metrics.ApplicationStartup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class BlockCacheWarmupTests {
+
+    static final List<String> PHASES = List.of("block-summaries", "active-blocks", "block-entities");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BlockRepository blockRepository = mock(BlockRepository.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void outOfServiceUntilWarmupCompletesThenUpWithEveryPhase() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(blockRepository.findAllSummaries()).thenAnswer(invocation -> {
+            release.await();
+            return List.of(new BIblockSummary(1, "news", "Новости", "Y"));
+        });
+        when(blockRepository.findByActiveOrderBySortAsc("Y")).thenReturn(List.of());
+        when(blockRepository.findAllById(any())).thenReturn(List.of());
+        BlockCacheWarmup warmup = warmup(true);
+
+        assertThat(warmup.health().getStatus()).as("before start").isEqualTo(Status.OUT_OF_SERVICE);
+        warmup.start();
+        assertThat(warmup.health().getStatus()).as("while running").isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(warmup.health().getDetails()).containsEntry("state", BlockCacheWarmup.State.RUNNING);
+
+        release.countDown();
+        Health health = awaitFinished(warmup);
+
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsEntry("state", BlockCacheWarmup.State.COMPLETED)
+                .doesNotContainKey("error");
+        assertThat(((Map<String, ?>) health.getDetails().get("phaseMillis")).keySet()).containsExactlyElementsOf(PHASES);
+        for (String phase : PHASES) {
+            assertThat(phaseTimer(phase).count()).as(phase).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void failedWarmupIsUpWithErrorAndRecordsFailedPhase() throws Exception {
+        when(blockRepository.findAllSummaries()).thenReturn(List.of(new BIblockSummary(1, "news", "Новости", "Y")));
+        when(blockRepository.findByActiveOrderBySortAsc("Y")).thenThrow(new IllegalStateException("db is down"));
+        BlockCacheWarmup warmup = warmup(true);
+
+        warmup.start();
+        Health health = awaitFinished(warmup);
+
+        // данные читаются из БД и без кэша, поэтому ошибка прогрева не снимает приложение с трафика
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsEntry("state", BlockCacheWarmup.State.FAILED);
+        assertThat(health.getDetails().get("error").toString()).contains("db is down");
+        assertThat(phaseTimer("block-summaries").count()).isEqualTo(1);
+        assertThat(phaseTimer("active-blocks").count()).isEqualTo(1);
+        assertThat(meterRegistry.find("startup.warmup.phase").tag("phase", "block-entities").timer()).isNull();
+    }
+
+    @Test
+    void disabledWarmupIsUpWithoutTouchingRepository() {
+        BlockCacheWarmup warmup = warmup(false);
+
+        warmup.start();
+        Health health = warmup.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsEntry("state", BlockCacheWarmup.State.DISABLED);
+        assertThat(meterRegistry.find("startup.warmup.phase").timers()).isEmpty();
+        verifyNoInteractions(blockRepository);
+    }
+
+    private BlockCacheWarmup warmup(boolean enabled) {
+        BlockCacheWarmup warmup = new BlockCacheWarmup();
+        warmup.blockRepository = blockRepository;
+        warmup.applicationStartup = ApplicationStartup.DEFAULT;
+        warmup.meterRegistry = meterRegistry;
+        warmup.enabled = enabled;
+        return warmup;
+    }
+
+    private Timer phaseTimer(String phase) {
+        return meterRegistry.get("startup.warmup.phase").tag("phase", phase).timer();
+    }
+
+    private static Health awaitFinished(BlockCacheWarmup warmup) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        Health health = warmup.health();
+        while (health.getDetails().get("state") == BlockCacheWarmup.State.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            health = warmup.health();
+        }
+        return health;
+    }
+}
@@ -0,0 +1,198 @@
+package com.paul.startclass.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedRingQueueTests {
+
+    @Test
+    void bufferIsRoundedUpToPowerOfTwoButCapacityIsKept() {
+        assertThat(new BoundedRingQueue<>(1).slots()).isEqualTo(1);
+        assertThat(new BoundedRingQueue<>(2).slots()).isEqualTo(2);
+        assertThat(new BoundedRingQueue<>(3).slots()).isEqualTo(4);
+        assertThat(new BoundedRingQueue<>(1000).slots()).isEqualTo(1024);
+        assertThat(new BoundedRingQueue<>(1024).slots()).isEqualTo(1024);
+
+        BoundedRingQueue<Integer> queue = new BoundedRingQueue<>(3);
+        assertThat(queue.capacity()).isEqualTo(3);
+        assertThat(queue.offer(1)).isTrue();
+        assertThat(queue.offer(2)).isTrue();
+        assertThat(queue.offer(3)).isTrue();
+        assertThat(queue.offer(4)).as("capacity, not buffer size, bounds the queue").isFalse();
+        assertThat(queue.size()).isEqualTo(3);
+    }
+
+    @Test
+    void nonPositiveCapacityIsRejected() {
+        assertThatThrownBy(() -> new BoundedRingQueue<>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void keepsFifoOrderAcrossManyWraparounds() {
+        BoundedRingQueue<Integer> queue = new BoundedRingQueue<>(3);
+        int next = 0;
+        int expected = 0;
+
+        for (int round = 0; round < 1000; round++) {
+            // то два, то три элемента за круг, чтобы начало очереди смещалось по всем ячейкам
+            int batch = 2 + round % 2;
+            for (int i = 0; i < batch; i++) {
+                assertThat(queue.offer(next++)).isTrue();
+            }
+            for (int i = 0; i < batch; i++) {
+                assertThat(queue.poll()).isEqualTo(expected++);
+            }
+            assertThat(queue.poll()).isNull();
+        }
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    void singleSlotQueueAlternatesOfferAndPoll() {
+        BoundedRingQueue<String> queue = new BoundedRingQueue<>(1);
+        for (int i = 0; i < 10; i++) {
+            assertThat(queue.offer("a" + i)).isTrue();
+            assertThat(queue.offer("b" + i)).isFalse();
+            assertThat(queue.poll()).isEqualTo("a" + i);
+        }
+    }
+
+    @Test
+    void putBlocksWhileFullAndReportsWaitTime() throws Exception {
+        BoundedRingQueue<Integer> queue = new BoundedRingQueue<>(2);
+        assertThat(queue.put(1)).isZero();
+        queue.put(2);
+
+        CompletableFuture<Long> blocked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.put(3);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(200);
+        assertThat(blocked).isNotDone();
+
+        assertThat(queue.take()).isEqualTo(1);
+        assertThat(blocked.get(5, TimeUnit.SECONDS)).isGreaterThan(0);
+        assertThat(queue.take()).isEqualTo(2);
+        assertThat(queue.take()).isEqualTo(3);
+    }
+
+    @Test
+    void takeBlocksWhileEmpty() throws Exception {
+        BoundedRingQueue<Integer> queue = new BoundedRingQueue<>(2);
+
+        CompletableFuture<Integer> blocked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(200);
+        assertThat(blocked).isNotDone();
+
+        queue.put(42);
+        assertThat(blocked.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+    }
+
+    @Test
+    void interruptStopsBlockedPutAndTake() throws Exception {
+        BoundedRingQueue<Integer> full = new BoundedRingQueue<>(1);
+        full.put(1);
+        assertInterrupted(() -> full.put(2));
+        assertThat(full.poll()).isEqualTo(1);
+        assertThat(full.poll()).as("interrupted put left nothing behind").isNull();
+
+        BoundedRingQueue<Integer> empty = new BoundedRingQueue<>(1);
+        assertInterrupted(empty::take);
+    }
+
+    @Test
+    void multipleProducersAndConsumersDeliverEachElementOnce() throws Exception {
+        int producers = 4;
+        int consumers = 4;
+        int perProducer = 50_000;
+        BoundedRingQueue<Integer> queue = new BoundedRingQueue<>(8);
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int p = 0; p < producers; p++) {
+                int first = p * perProducer;
+                executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        queue.put(first + i);
+                    }
+                    return null;
+                });
+            }
+            List<Future<int[]>> taken = new ArrayList<>();
+            for (int c = 0; c < consumers; c++) {
+                taken.add(executor.submit(() -> {
+                    start.await();
+                    int[] counts = new int[producers * perProducer];
+                    int[] lastFromProducer = new int[producers];
+                    Arrays.fill(lastFromProducer, -1);
+                    for (int i = 0; i < perProducer; i++) {
+                        int value = queue.take();
+                        counts[value]++;
+                        // один потребитель видит элементы каждого производителя в порядке их записи
+                        assertThat(value).isGreaterThan(lastFromProducer[value / perProducer]);
+                        lastFromProducer[value / perProducer] = value;
+                    }
+                    return counts;
+                }));
+            }
+            start.countDown();
+
+            int[] total = new int[producers * perProducer];
+            for (Future<int[]> future : taken) {
+                int[] counts = future.get(60, TimeUnit.SECONDS);
+                for (int i = 0; i < total.length; i++) {
+                    total[i] += counts[i];
+                }
+            }
+            assertThat(total).containsOnly(1);
+            assertThat(queue.size()).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface Blocking {
+        void run() throws InterruptedException;
+    }
+
+    private static void assertInterrupted(Blocking action) throws InterruptedException, ExecutionException {
+        CompletableFuture<Throwable> error = new CompletableFuture<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                action.run();
+                error.complete(null);
+            } catch (Throwable e) {
+                error.complete(e);
+            }
+        });
+        waiter.start();
+        Thread.sleep(100);
+        waiter.interrupt();
+        waiter.join(5000);
+
+        assertThat(error.get()).isInstanceOf(InterruptedException.class);
+    }
+}
@@ -0,0 +1,143 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.models.BatchChunk;
+import com.paul.startclass.models.Student;
+import com.paul.startclass.repository.BatchChunkRepository;
+import com.paul.startclass.repository.StudentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Несколько экземпляров в одном контексте: у каждого свой nodeId, БД общая, как у нескольких JVM
+// в профиле cluster (проверка с настоящими JVM - scripts/cluster-demo.sh)
+@SpringBootTest
+@ActiveProfiles("embedded")
+class DistributedChunkServiceTests {
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ConnectionPoolScheduler poolScheduler;
+
+    @Autowired
+    BatchChunkRepository batchChunkRepository;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    StudentBatchService studentBatchService;
+
+    @Autowired
+    BatchProcessingEngine<Student> batchProcessingEngine;
+
+    @Autowired
+    BatchExecutor batchExecutor;
+
+    @Autowired
+    BatchMetrics batchMetrics;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void nodesProcessEveryChunkExactlyOnce() {
+        DistributedChunkService nodeA = node("node-a", 30, 2, studentBatchService);
+        DistributedChunkService nodeB = node("node-b", 30, 2, studentBatchService);
+        String jobId = nodeA.createJob(2000).jobId();
+
+        CompletableFuture<BatchResult> a = CompletableFuture.supplyAsync(() -> nodeA.work().orElseThrow());
+        CompletableFuture<BatchResult> b = CompletableFuture.supplyAsync(() -> nodeB.work().orElseThrow());
+        BatchResult resultA = a.join();
+        BatchResult resultB = b.join();
+
+        List<BatchChunk> chunks = chunks(jobId);
+        assertThat(chunks).allMatch(chunk -> BatchChunk.DONE.equals(chunk.getStatus()));
+        assertThat(chunks).allMatch(chunk -> chunk.getAttempts() == 1);
+        assertThat(resultA.chunks() + resultB.chunks()).isEqualTo(chunks.size());
+    }
+
+    @Test
+    void expiredLeaseIsReclaimedByAnotherNode() throws InterruptedException {
+        DistributedChunkService crashed = node("node-crashed", 2, 3, studentBatchService);
+        DistributedChunkService survivor = node("node-survivor", 2, 3, studentBatchService);
+        String jobId = crashed.createJob(10000).jobId();
+        // экземпляр захватил чанки и пропал: ни heartbeat, ни complete
+        jdbcTemplate.update("UPDATE sova.batch_chunks SET STATUS = 'CLAIMED', OWNER = 'node-crashed',"
+                + " HEARTBEAT_AT = CURRENT_TIMESTAMP, ATTEMPTS = 1 WHERE JOB_ID = ?", jobId);
+
+        assertThat(survivor.work().orElseThrow().chunks()).isZero();
+        Thread.sleep(3000);
+        BatchResult result = survivor.work().orElseThrow();
+
+        List<BatchChunk> chunks = chunks(jobId);
+        assertThat(result.chunks()).isEqualTo(chunks.size());
+        assertThat(chunks).allMatch(chunk -> BatchChunk.DONE.equals(chunk.getStatus())
+                && "node-survivor".equals(chunk.getOwner()) && chunk.getAttempts() == 2);
+    }
+
+    @Test
+    void failingChunkDoesNotUseUpAttemptsOfOtherChunks() {
+        List<IdRange> ranges = studentBatchService.partitions(5000);
+        int poisonedFromId = ranges.get(ranges.size() / 2).fromId();
+        StudentBatchService failing = new StudentBatchService(transactionManager) {
+            @Override
+            int addPrefix(IdRange range, LongAdder scanned) {
+                if (range.fromId() == poisonedFromId) {
+                    throw new IllegalStateException("poisoned range " + range);
+                }
+                return studentBatchService.addPrefix(range, scanned);
+            }
+        };
+        failing.studentRepository = studentRepository;
+        failing.poolScheduler = poolScheduler;
+        DistributedChunkService node = node("node-failing", 30, 3, failing);
+        String jobId = node.createJob(5000).jobId();
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            assertThatThrownBy(node::work).isInstanceOf(BatchFailedException.class);
+        }
+        node.work().orElseThrow();
+
+        Map<String, Long> statuses = node.status(jobId).orElseThrow().chunks();
+        assertThat(statuses).containsEntry(BatchChunk.FAILED, 1L).containsEntry(BatchChunk.DONE, ranges.size() - 1L);
+        assertThat(chunks(jobId)).allMatch(chunk -> chunk.getFromId() == poisonedFromId
+                ? chunk.getAttempts() == 3 : chunk.getAttempts() == 1);
+    }
+
+    private DistributedChunkService node(String nodeId, int leaseSeconds, int maxAttempts,
+                                         StudentBatchService studentBatchService) {
+        DistributedChunkService node = new DistributedChunkService(transactionManager, poolScheduler,
+                nodeId, leaseSeconds, 1, maxAttempts, 0, 0);
+        node.batchChunkRepository = batchChunkRepository;
+        node.studentBatchService = studentBatchService;
+        node.batchProcessingEngine = batchProcessingEngine;
+        node.batchExecutor = batchExecutor;
+        node.batchMetrics = batchMetrics;
+        node.jdbcTemplate = jdbcTemplate;
+        return node;
+    }
+
+    private List<BatchChunk> chunks(String jobId) {
+        return jdbcTemplate.query("SELECT * FROM sova.batch_chunks WHERE JOB_ID = ?", (resultSet, row) -> {
+            BatchChunk chunk = new BatchChunk(jobId, resultSet.getInt("CHUNK_NO"),
+                    resultSet.getInt("FROM_ID"), resultSet.getInt("TO_ID"));
+            chunk.setStatus(resultSet.getString("STATUS"));
+            chunk.setOwner(resultSet.getString("OWNER"));
+            chunk.setAttempts(resultSet.getInt("ATTEMPTS"));
+            return chunk;
+        }, jobId);
+    }
+}
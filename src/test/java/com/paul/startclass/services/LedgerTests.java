@@ -0,0 +1,132 @@
+package com.paul.startclass.services;
+
+import com.paul.startclass.services.Ledger.TransferBatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LedgerTests {
+
+    @Test
+    void stripeCountIsRoundedUpToPowerOfTwoAndCappedByAccounts() {
+        assertThat(new Ledger(1000, 10, 1000).stripes()).isEqualTo(1024);
+        assertThat(new Ledger(1000, 10, 1024).stripes()).isEqualTo(1024);
+        assertThat(new Ledger(1000, 10, 1).stripes()).isEqualTo(1);
+        assertThat(new Ledger(4, 10, 1024).stripes()).isEqualTo(4);
+    }
+
+    @Test
+    void transferRejectsOverdraftWithoutChangingBalances() {
+        Ledger ledger = new Ledger(2, 100, 2);
+
+        assertThat(ledger.transfer(0, 1, 60)).isTrue();
+        assertThat(ledger.transfer(0, 1, 60)).isFalse();
+
+        assertThat(ledger.balance(0)).isEqualTo(40);
+        assertThat(ledger.balance(1)).isEqualTo(160);
+        assertThat(ledger.completedTransfers()).isEqualTo(1);
+        assertThat(ledger.rejectedTransfers()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidEntryRejectsWholeBatchBeforeAnyTransfer() {
+        Ledger ledger = new Ledger(10, 100, 4);
+        TransferBatch batch = new TransferBatch(4);
+        batch.add(0, 1, 10);
+        batch.add(2, 3, 10);
+        batch.add(4, 4, 10);
+        batch.add(5, 6, 10);
+
+        assertThatThrownBy(() -> ledger.transferAll(batch))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("#2");
+
+        for (int id = 0; id < 10; id++) {
+            assertThat(ledger.balance(id)).isEqualTo(100);
+        }
+        assertThat(ledger.completedTransfers() + ledger.rejectedTransfers()).isZero();
+    }
+
+    @Test
+    void batchWithUnknownAccountOrNonPositiveAmountIsRejected() {
+        Ledger ledger = new Ledger(10, 100, 4);
+        TransferBatch unknownAccount = new TransferBatch(2);
+        unknownAccount.add(0, 1, 10);
+        unknownAccount.add(0, 10, 10);
+        TransferBatch zeroAmount = new TransferBatch(2);
+        zeroAmount.add(0, 1, 10);
+        zeroAmount.add(2, 3, 0);
+
+        assertThatThrownBy(() -> ledger.transferAll(unknownAccount)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ledger.transferAll(zeroAmount)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(ledger.balance(0)).isEqualTo(100);
+    }
+
+    @Test
+    void batchCountsCompletedAndRejectedTransfers() {
+        Ledger ledger = new Ledger(3, 50, 2);
+        TransferBatch batch = new TransferBatch(3);
+        batch.add(0, 1, 50);
+        batch.add(0, 2, 1);
+        batch.add(1, 2, 100);
+
+        assertThat(ledger.transferAll(batch)).isEqualTo(1);
+        assertThat(ledger.balance(0)).isZero();
+        assertThat(ledger.balance(1)).isZero();
+        assertThat(ledger.balance(2)).isEqualTo(150);
+        assertThat(ledger.completedTransfers()).isEqualTo(2);
+        assertThat(ledger.rejectedTransfers()).isEqualTo(1);
+    }
+
+    // Мало счетов и полос - много встречных переводов между одними и теми же полосами
+    @Test
+    void moneyIsConservedUnderContention() throws Exception {
+        Ledger ledger = new Ledger(64, 1000, 8);
+        int threads = 8;
+        int batchesPerThread = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    TransferBatch batch = new TransferBatch(64);
+                    for (int b = 0; b < batchesPerThread; b++) {
+                        while (!batch.isFull()) {
+                            int fromId = random.nextInt(64);
+                            int toId = random.nextInt(63);
+                            batch.add(fromId, toId >= fromId ? toId + 1 : toId, 1 + random.nextLong(500));
+                        }
+                        ledger.transferAll(batch);
+                        batch.clear();
+                        // одиночные переводы и total() вперемешку с пачками
+                        ledger.transfer(random.nextInt(32), 32 + random.nextInt(32), 1);
+                        assertThat(ledger.total()).isEqualTo(64 * 1000L);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        ledger.verifyConservation();
+        assertThat(ledger.completedTransfers() + ledger.rejectedTransfers())
+                .isEqualTo((long) threads * batchesPerThread * 65);
+        for (int id = 0; id < 64; id++) {
+            assertThat(ledger.balance(id)).isNotNegative();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.paul.startclass.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LockWatchdogTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Thread> threads = new ArrayList<>();
+
+    @AfterEach
+    void releaseThreads() throws InterruptedException {
+        // lockInterruptibly: прерывание разрывает deadlock
+        threads.forEach(Thread::interrupt);
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+    }
+
+    @Test
+    void reportsOnlyThreadsInTheCycleNotTheirWaiters() throws InterruptedException {
+        ReentrantLock first = new ReentrantLock();
+        ReentrantLock second = new ReentrantLock();
+        CountDownLatch bothHeld = new CountDownLatch(2);
+        Thread a = start("deadlock-a", () -> lockBoth(first, second, bothHeld));
+        Thread b = start("deadlock-b", () -> lockBoth(second, first, bothHeld));
+        bothHeld.await();
+        // ждет блокировку участника цикла, но сама в цикл не входит
+        Thread waiter = start("deadlock-waiter", () -> lockBoth(first, first, new CountDownLatch(0)));
+        awaitBlocked(a, b, waiter);
+
+        LockWatchdog watchdog = new LockWatchdog(meterRegistry, 0, 10, false);
+        watchdog.check();
+        watchdog.check();
+
+        List<LockWatchdog.DeadlockCycle> cycles = watchdog.report().deadlocks();
+        assertThat(cycles).hasSize(1);
+        assertThat(cycles.get(0).threads()).extracting(LockWatchdog.ThreadSnapshot::id)
+                .containsExactlyInAnyOrder(a.threadId(), b.threadId());
+        assertThat(meterRegistry.get("diagnostics.deadlocked.threads").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("diagnostics.deadlocks.detected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void waitersAreCutOffWhicheverThreadTheWalkStartsFrom() {
+        // 1 <-> 2 - цикл, 3 ждет 1, 4 ждет 3
+        for (long[] order : new long[][]{{3, 1, 2, 4}, {1, 3, 2, 4}, {4, 3, 2, 1}, {2, 4, 1, 3}}) {
+            Map<Long, ThreadInfo> byId = new LinkedHashMap<>();
+            Map<Long, Long> owners = Map.of(1L, 2L, 2L, 1L, 3L, 1L, 4L, 3L);
+            for (long id : order) {
+                byId.put(id, threadInfo(id, owners.get(id)));
+            }
+
+            List<List<ThreadInfo>> cycles = LockWatchdog.cycles(byId);
+
+            assertThat(cycles).as("order %s", Arrays.toString(order)).hasSize(1);
+            assertThat(cycles.get(0)).extracting(ThreadInfo::getThreadId).containsExactlyInAnyOrder(1L, 2L);
+        }
+    }
+
+    @Test
+    void separateCyclesAreReportedSeparately() {
+        Map<Long, ThreadInfo> byId = new LinkedHashMap<>();
+        byId.put(5L, threadInfo(5, 1));
+        byId.put(1L, threadInfo(1, 2));
+        byId.put(2L, threadInfo(2, 1));
+        byId.put(3L, threadInfo(3, 4));
+        byId.put(4L, threadInfo(4, 3));
+        // владелец не в списке: цепочка без цикла
+        byId.put(6L, threadInfo(6, 99));
+
+        assertThat(LockWatchdog.cycles(byId)).extracting(cycle -> cycle.stream().map(ThreadInfo::getThreadId).sorted().toList())
+                .containsExactly(List.of(1L, 2L), List.of(3L, 4L));
+    }
+
+    private static ThreadInfo threadInfo(long id, long ownerId) {
+        ThreadInfo info = mock(ThreadInfo.class);
+        when(info.getThreadId()).thenReturn(id);
+        when(info.getLockOwnerId()).thenReturn(ownerId);
+        return info;
+    }
+
+    private static void lockBoth(ReentrantLock held, ReentrantLock wanted, CountDownLatch bothHeld) {
+        try {
+            held.lockInterruptibly();
+            try {
+                bothHeld.countDown();
+                bothHeld.await();
+                wanted.lockInterruptibly();
+                wanted.unlock();
+            } finally {
+                held.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Thread start(String name, Runnable task) {
+        Thread thread = Thread.ofPlatform().name(name).daemon().start(task);
+        threads.add(thread);
+        return thread;
+    }
+
+    private static void awaitBlocked(Thread... waiting) throws InterruptedException {
+        for (Thread thread : waiting) {
+            for (int i = 0; i < 500 && thread.getState() != Thread.State.WAITING; i++) {
+                Thread.sleep(10);
+            }
+            assertThat(thread.getState()).as(thread.getName()).isEqualTo(Thread.State.WAITING);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.paul.startclass.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static com.paul.startclass.services.StudentPrefixService.PREFIX;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NameTransformTests {
+
+    private static final List<String> NAMES = Arrays.asList(
+            "Ivan", "Ivan" + PREFIX, "Ivan" + PREFIX + PREFIX, PREFIX + " Ivan", "Iv" + PREFIX + "an", "", PREFIX, null);
+
+    @Test
+    void addPrefixIsIdempotent() {
+        NameTransform add = NameTransform.ADD_PREFIX;
+
+        assertThat(add.needsChange("Ivan")).isTrue();
+        String once = add.apply("Ivan");
+        assertThat(once).isEqualTo("Ivan" + PREFIX);
+        assertThat(add.needsChange(once)).isFalse();
+
+        // префикс не в конце имени не считается добавленным
+        assertThat(add.needsChange("Iv" + PREFIX + "an")).isTrue();
+    }
+
+    @Test
+    void removePrefixIsIdempotentAndRemovesEveryOccurrence() {
+        NameTransform remove = NameTransform.REMOVE_PREFIX;
+
+        String once = remove.apply("Iv" + PREFIX + "an" + PREFIX);
+        assertThat(once).isEqualTo("Ivan");
+        assertThat(remove.needsChange(once)).isFalse();
+        assertThat(remove.needsChange("Ivan")).isFalse();
+    }
+
+    @Test
+    void removeUndoesAdd() {
+        for (String name : List.of("Ivan", "", "Petr Ivanov")) {
+            String added = NameTransform.ADD_PREFIX.apply(name);
+            assertThat(NameTransform.REMOVE_PREFIX.needsChange(added)).isTrue();
+            assertThat(NameTransform.REMOVE_PREFIX.apply(added)).isEqualTo(name);
+        }
+    }
+
+    @Test
+    void nullNameIsNeverChanged() {
+        for (NameTransform transform : NameTransform.values()) {
+            assertThat(transform.needsChange(null)).as(transform.name()).isFalse();
+        }
+    }
+
+    @Test
+    void sqlConditionSelectsSameRowsAsNeedsChange() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:names;MODE=MySQL");
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table STUDENT (ID int primary key, NAME varchar(100))");
+            try (PreparedStatement insert = connection.prepareStatement("insert into STUDENT values (?, ?)")) {
+                for (int id = 0; id < NAMES.size(); id++) {
+                    insert.setInt(1, id);
+                    insert.setString(2, NAMES.get(id));
+                    insert.executeUpdate();
+                }
+            }
+
+            for (NameTransform transform : NameTransform.values()) {
+                List<String> selected = new ArrayList<>();
+                try (PreparedStatement select = connection.prepareStatement(
+                        "select NAME from STUDENT where " + transform.sqlCondition() + " order by ID")) {
+                    select.setString(1, transform.likePattern());
+                    try (ResultSet rows = select.executeQuery()) {
+                        while (rows.next()) {
+                            selected.add(rows.getString(1));
+                        }
+                    }
+                }
+                List<String> expected = NAMES.stream().filter(Objects::nonNull).filter(transform::needsChange).toList();
+
+                assertThat(selected).as(transform.name()).isEqualTo(expected);
+            }
+        }
+    }
+}